@@ -1,20 +1,41 @@
 package com.example.authapp.config;
 
+import com.example.authapp.entity.Prefecture;
 import com.example.authapp.entity.User;
+import com.example.authapp.repository.CalculationRuleSetRepository;
+import com.example.authapp.repository.PrefectureRepository;
 import com.example.authapp.repository.UserRepository;
+import com.example.authapp.service.CalculationPlan;
+import com.example.authapp.service.CalculationRuleService;
+import com.example.authapp.service.PrefectureCodes;
+import com.example.authapp.service.PrefectureService;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Component
 public class DataInitializer implements CommandLineRunner {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PrefectureRepository prefectureRepository;
+    private final PrefectureService prefectureService;
+    private final CalculationRuleSetRepository calculationRuleSetRepository;
+    private final CalculationRuleService calculationRuleService;
 
-    public DataInitializer(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public DataInitializer(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                           PrefectureRepository prefectureRepository, PrefectureService prefectureService,
+                           CalculationRuleSetRepository calculationRuleSetRepository,
+                           CalculationRuleService calculationRuleService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.prefectureRepository = prefectureRepository;
+        this.prefectureService = prefectureService;
+        this.calculationRuleSetRepository = calculationRuleSetRepository;
+        this.calculationRuleService = calculationRuleService;
     }
 
     @Override
@@ -41,6 +62,30 @@ public class DataInitializer implements CommandLineRunner {
             userRepository.save(user);
             System.out.println("テストユーザーを作成しました: user / user123");
         }
+
+        // 都道府県マスタが空の場合、47都道府県を作成する
+        if (prefectureRepository.count() == 0) {
+            Map<String, Integer> initialRents = new HashMap<>();
+            initialRents.put("北海道", 50000);
+            initialRents.put("東京都", 80000);
+            initialRents.put("大阪府", 60000);
+            initialRents.put("岐阜県", 60000);
+            // 上記以外の都道府県は平均家賃を未登録で作成する（推測の値では計算しない）
+            // 未登録の都道府県は計算できないため、管理者が POST /admin/prefectures/{code}/average-rent で登録する
+            for (int code = 1; code <= PrefectureCodes.MAX_CODE; code++) {
+                String name = PrefectureCodes.nameOf(code);
+                prefectureRepository.save(new Prefecture(String.format("%02d", code), name, initialRents.get(name)));
+            }
+            prefectureService.reload();
+            System.out.println("都道府県マスタを作成しました: " + PrefectureCodes.MAX_CODE + "件");
+        }
+
+        // 計算ルールセットが存在しない場合、従来の率・固定費を版1として作成する
+        if (calculationRuleSetRepository.count() == 0) {
+            calculationRuleSetRepository.save(CalculationPlan.DEFAULT.toRuleSet(true));
+            calculationRuleService.reload();
+            System.out.println("計算ルールセットを作成しました: 版" + CalculationPlan.DEFAULT.getVersion());
+        }
     }
 }
 
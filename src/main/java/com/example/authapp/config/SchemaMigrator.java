@@ -0,0 +1,178 @@
+package com.example.authapp.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+/**
+ * 版管理されたスキーマの変更（マイグレーション）を適用する
+ *
+ * テーブルとカラムはHibernateのddl-autoで作成されるため、ここではddl-autoで表現できない変更
+ * （インデックス、既存データの移行など）だけを扱う。
+ * クラスパスの db/migration/V{版数}__{説明}.sql を版数の順に1度だけ実行し、
+ * 適用済みの版は schema_migrations テーブルに記録する。
+ */
+@Component
+@DependsOn("entityManagerFactory") // テーブルはHibernateのddl-autoで作成されるため、その後に適用する
+public class SchemaMigrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+
+    private static final String CREATE_TABLE_SQL =
+        "CREATE TABLE IF NOT EXISTS schema_migrations ("
+        + "version INT PRIMARY KEY, "
+        + "description VARCHAR(200) NOT NULL, "
+        + "checksum BIGINT NOT NULL, "
+        + "installed_at TIMESTAMP NOT NULL)";
+
+    private static final String SELECT_APPLIED_SQL = "SELECT version, checksum FROM schema_migrations";
+
+    private static final String INSERT_SQL =
+        "INSERT INTO schema_migrations (version, description, checksum, installed_at) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // マイグレーションのファイルを探す場所
+    private final String locationPattern;
+
+    public SchemaMigrator(JdbcTemplate jdbcTemplate,
+                          @Value("${schema.migration.location-pattern:classpath:db/migration/V*__*.sql}")
+                          String locationPattern) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.locationPattern = locationPattern;
+    }
+
+    /**
+     * 未適用のマイグレーションを版数の順に適用する
+     *
+     * 途中で失敗した場合は起動を中止する（適用済みの版は記録されたまま残る）。
+     */
+    @PostConstruct
+    public void migrate() throws IOException {
+        jdbcTemplate.execute(CREATE_TABLE_SQL);
+
+        Map<Integer, Long> applied = new HashMap<>();
+        jdbcTemplate.query(SELECT_APPLIED_SQL, rs -> {
+            applied.put(rs.getInt(1), rs.getLong(2));
+        });
+
+        int count = 0;
+        for (Migration migration : findMigrations()) {
+            Long checksum = applied.get(migration.version);
+            if (checksum != null) {
+                if (checksum != migration.checksum) {
+                    // 適用済みのファイルは書き換えず、新しい版を追加する
+                    logger.warn("適用済みのマイグレーションが変更されています - 版: {}", migration.version);
+                }
+                continue;
+            }
+            apply(migration);
+            count++;
+        }
+        logger.info("スキーマのマイグレーションを確認しました - 適用: {}件, 適用済み: {}件", count, applied.size());
+    }
+
+    private void apply(Migration migration) {
+        long startNanos = System.nanoTime();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                ScriptUtils.executeSqlScript(connection, migration.resource);
+                record(connection, migration);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+        logger.info("スキーマのマイグレーションを適用しました - 版: {}, 説明: {}, 処理時間: {}ms",
+                    migration.version, migration.description, (System.nanoTime() - startNanos) / 1000000);
+    }
+
+    private static void record(Connection connection, Migration migration) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL)) {
+            ps.setInt(1, migration.version);
+            ps.setString(2, migration.description);
+            ps.setLong(3, migration.checksum);
+            ps.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+            ps.executeUpdate();
+        }
+    }
+
+    private List<Migration> findMigrations() throws IOException {
+        List<Migration> migrations = new ArrayList<>();
+        for (Resource resource : new PathMatchingResourcePatternResolver().getResources(locationPattern)) {
+            Matcher matcher = FILE_NAME.matcher(resource.getFilename());
+            if (!matcher.matches()) {
+                logger.warn("マイグレーションのファイル名が不正なため無視します: {}", resource.getFilename());
+                continue;
+            }
+            migrations.add(new Migration(Integer.parseInt(matcher.group(1)),
+                matcher.group(2).replace('_', ' '), checksum(resource), resource));
+        }
+        migrations.sort(Comparator.comparingInt(migration -> migration.version));
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version == migrations.get(i - 1).version) {
+                throw new IllegalStateException("マイグレーションの版数が重複しています: " + migrations.get(i).version);
+            }
+        }
+        return migrations;
+    }
+
+    private static long checksum(Resource resource) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = resource.getInputStream()) {
+            crc.update(StreamUtils.copyToByteArray(in));
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * 1つの版のマイグレーション
+     */
+    private static final class Migration {
+        final int version;
+        final String description;
+        final long checksum;
+        final Resource resource;
+
+        Migration(int version, String description, long checksum, Resource resource) {
+            this.version = version;
+            this.description = description;
+            this.checksum = checksum;
+            this.resource = resource;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.authapp.config;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import com.example.authapp.service.CircuitBreaker;
+
+@Configuration
+public class ZipCloudClientConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ZipCloudClientConfig.class);
+
+    /**
+     * zipcloud API呼び出し用のHTTPクライアント
+     * 
+     * 接続プールで接続を再利用する。プールの上限はアプリケーション内で閉じており、JVM全体の設定は変更しない。
+     * 同時呼び出し数はバルクヘッドで制限するため、接続先ごとの上限はバルクヘッドの上限以上にして、
+     * 許可を得た呼び出しがプールの空きを待たないようにする。
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient zipCloudHttpClient(
+            @Value("${zipcloud.http.max-total:20}") int maxTotal,
+            @Value("${zipcloud.http.default-max-per-route:20}") int defaultMaxPerRoute,
+            @Value("${zipcloud.http.idle-timeout-millis:30000}") long idleTimeoutMillis,
+            @Value("${zipcloud.bulkhead.max-concurrent-calls:20}") int maxConcurrentCalls) {
+        if (Math.min(maxTotal, defaultMaxPerRoute) < maxConcurrentCalls) {
+            logger.warn("zipcloud APIの接続プールの上限がバルクヘッドの上限より小さいため、呼び出しが接続の空きを待つ場合があります"
+                + " - プール全体: {}, 接続先ごと: {}, バルクヘッド: {}", maxTotal, defaultMaxPerRoute, maxConcurrentCalls);
+        }
+        
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(defaultMaxPerRoute);
+        
+        // 一定時間使われていない接続は閉じる（相手側に切られた接続を使わないようにする）
+        return HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .evictExpiredConnections()
+            .evictIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS)
+            .build();
+    }
+    
+    /**
+     * zipcloud API呼び出し用のRestTemplate
+     * 
+     * 接続プールを持つHTTPクライアントで接続を再利用し、
+     * 接続・読み込み・プールの空き待ちのタイムアウトを設定して応答の遅いAPIにスレッドを占有されないようにする。
+     */
+    @Bean
+    public RestTemplate zipCloudRestTemplate(RestTemplateBuilder builder,
+            @Qualifier("zipCloudHttpClient") CloseableHttpClient zipCloudHttpClient,
+            @Value("${zipcloud.http.connect-timeout-millis:1000}") long connectTimeoutMillis,
+            @Value("${zipcloud.http.read-timeout-millis:2000}") long readTimeoutMillis,
+            @Value("${zipcloud.http.connection-request-timeout-millis:500}") int connectionRequestTimeoutMillis) {
+        return builder
+            .requestFactory(() -> {
+                HttpComponentsClientHttpRequestFactory requestFactory =
+                    new HttpComponentsClientHttpRequestFactory(zipCloudHttpClient);
+                requestFactory.setConnectionRequestTimeout(connectionRequestTimeoutMillis);
+                return requestFactory;
+            })
+            .setConnectTimeout(Duration.ofMillis(connectTimeoutMillis))
+            .setReadTimeout(Duration.ofMillis(readTimeoutMillis))
+            .build();
+    }
+    
+    /**
+     * zipcloud API呼び出し用のサーキットブレーカー
+     * 
+     * APIが劣化している間は呼び出しを止め、すぐにフォールバックさせる。
+     */
+    @Bean
+    public CircuitBreaker zipCloudCircuitBreaker(
+            @Value("${zipcloud.circuit-breaker.window-size:50}") int windowSize,
+            @Value("${zipcloud.circuit-breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${zipcloud.circuit-breaker.failure-rate-threshold:50}") int failureRateThreshold,
+            @Value("${zipcloud.circuit-breaker.slow-call-rate-threshold:80}") int slowCallRateThreshold,
+            @Value("${zipcloud.circuit-breaker.slow-call-duration-millis:1500}") long slowCallDurationMillis,
+            @Value("${zipcloud.circuit-breaker.open-duration-millis:30000}") long openDurationMillis,
+            @Value("${zipcloud.circuit-breaker.half-open-permitted-calls:3}") int halfOpenPermittedCalls) {
+        return new CircuitBreaker("zipcloud", windowSize, minimumCalls,
+            failureRateThreshold, slowCallRateThreshold,
+            slowCallDurationMillis, openDurationMillis, halfOpenPermittedCalls);
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.authapp.controller;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.List;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.authapp.entity.CalculationRuleSet;
+import com.example.authapp.entity.User;
+import com.example.authapp.exception.InvalidParameterException;
+import com.example.authapp.exception.UserNotFoundException;
+import com.example.authapp.service.CalculationPlan;
+import com.example.authapp.service.CalculationHistoryExportService;
+import com.example.authapp.service.CalculationHistoryWriter;
+import com.example.authapp.service.CalculationRuleService;
+import com.example.authapp.service.CircuitBreaker;
+import com.example.authapp.service.LivingCostComparisonService;
+import com.example.authapp.service.PostalCodeCache;
+import com.example.authapp.service.PostalCodeCacheStore;
+import com.example.authapp.service.PostalCodeIndex;
+import com.example.authapp.service.PostalCodeIndexHolder;
+import com.example.authapp.service.PrefectureService;
+import com.example.authapp.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 運用管理用のエンドポイント
+ * /admin/** はSecurityConfigでADMINロールに制限されている
+ */
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
+
+    private final PostalCodeIndexHolder postalCodeIndexHolder;
+
+    private final PostalCodeCache postalCodeCache;
+
+    private final PostalCodeCacheStore postalCodeCacheStore;
+
+    private final CircuitBreaker zipCloudCircuitBreaker;
+
+    private final PrefectureService prefectureService;
+
+    private final CalculationRuleService calculationRuleService;
+
+    private final LivingCostComparisonService livingCostComparisonService;
+
+    private final CalculationHistoryWriter calculationHistoryWriter;
+
+    private final CalculationHistoryExportService calculationHistoryExportService;
+
+    private final UserService userService;
+
+    private final ObjectMapper objectMapper;
+
+    public AdminController(PostalCodeIndexHolder postalCodeIndexHolder, PostalCodeCache postalCodeCache,
+                           PostalCodeCacheStore postalCodeCacheStore, CircuitBreaker zipCloudCircuitBreaker,
+                           PrefectureService prefectureService,
+                           CalculationRuleService calculationRuleService,
+                           LivingCostComparisonService livingCostComparisonService,
+                           CalculationHistoryWriter calculationHistoryWriter,
+                           CalculationHistoryExportService calculationHistoryExportService,
+                           UserService userService, ObjectMapper objectMapper) {
+        this.postalCodeIndexHolder = postalCodeIndexHolder;
+        this.postalCodeCache = postalCodeCache;
+        this.postalCodeCacheStore = postalCodeCacheStore;
+        this.zipCloudCircuitBreaker = zipCloudCircuitBreaker;
+        this.prefectureService = prefectureService;
+        this.calculationRuleService = calculationRuleService;
+        this.livingCostComparisonService = livingCostComparisonService;
+        this.calculationHistoryWriter = calculationHistoryWriter;
+        this.calculationHistoryExportService = calculationHistoryExportService;
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+    }
+
+    // 郵便番号索引の状態を表示
+    @GetMapping("/postal-index")
+    public Map<String, Object> showPostalIndex() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("size", postalCodeIndexHolder.current().size());
+        return body;
+    }
+
+    // 郵便番号索引をバイナリ索引ファイルで差し替える
+    // （fileは設定された索引ファイルと同じディレクトリ内のファイル名、省略時は設定された索引ファイル）
+    @PostMapping("/postal-index/reload")
+    public ResponseEntity<Map<String, Object>> reloadPostalIndex(
+            @RequestParam(required = false) String file) {
+        logger.info("郵便番号索引の差し替えリクエスト受信 - file: {}", file);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        try {
+            PostalCodeIndex index = file == null || file.isEmpty()
+                ? postalCodeIndexHolder.reload()
+                : postalCodeIndexHolder.reload(file);
+            body.put("size", index.size());
+            return ResponseEntity.ok(body);
+        } catch (InvalidParameterException e) {
+            logger.warn("郵便番号索引の差し替えを拒否しました: {}", e.getMessage());
+            body.put("error", e.getMessage());
+            body.put("size", postalCodeIndexHolder.current().size());
+            return ResponseEntity.badRequest().body(body);
+        } catch (IOException e) {
+            // 差し替えに失敗した場合は現在の索引のまま（サーバー上のパスなどの詳細はログにだけ出力する）
+            logger.error("郵便番号索引の差し替えに失敗しました: {}", e.getMessage(), e);
+            body.put("error", "索引ファイルを読み込めませんでした");
+            body.put("size", postalCodeIndexHolder.current().size());
+            return ResponseEntity.badRequest().body(body);
+        }
+    }
+
+    // 郵便番号キャッシュの統計値（ヒット・ミス・追い出し件数）を表示
+    @GetMapping("/postal-cache")
+    public Map<String, Object> showPostalCache() {
+        Map<String, Object> body = postalCodeCache.stats();
+        body.put("storePending", postalCodeCacheStore.pendingCount());
+        body.put("storeDropped", postalCodeCacheStore.droppedCount());
+        return body;
+    }
+
+    // 郵便番号キャッシュを破棄する
+    @PostMapping("/postal-cache/clear")
+    public Map<String, Object> clearPostalCache() {
+        logger.info("郵便番号キャッシュの破棄リクエスト受信");
+        postalCodeCache.clear();
+        return postalCodeCache.stats();
+    }
+
+    // zipcloud APIのサーキットブレーカーの状態を表示
+    @GetMapping("/zipcloud-circuit-breaker")
+    public Map<String, Object> showZipCloudCircuitBreaker() {
+        return zipCloudCircuitBreaker.stats();
+    }
+
+    // 都道府県ごとの平均家賃を表示
+    @GetMapping("/prefectures")
+    public List<Map<String, Object>> showPrefectures() {
+        return prefectureService.listAverageRents();
+    }
+
+    // 平均家賃を更新する（averageRent省略時は登録を取り消す）
+    @PostMapping("/prefectures/{code}/average-rent")
+    public Map<String, Object> updateAverageRent(@PathVariable int code,
+                                                 @RequestParam(required = false) Integer averageRent) {
+        logger.info("平均家賃の更新リクエスト受信 - 都道府県コード: {}", code);
+        PrefectureService.RentTable table = prefectureService.updateAverageRent(code, averageRent);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("code", code);
+        body.put("averageRent", table.getAverageRent(code));
+        body.put("version", table.getVersion());
+        return body;
+    }
+
+    // 都道府県の参照データをDBから読み込み直す
+    @PostMapping("/prefectures/reload")
+    public Map<String, Object> reloadPrefectures() {
+        logger.info("都道府県の参照データの再読み込みリクエスト受信");
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("version", prefectureService.reload().getVersion());
+        return body;
+    }
+
+    // 全都道府県比較の結果キャッシュの統計値（ヒット件数・ミス件数）を表示
+    @GetMapping("/living-cost-cache")
+    public Map<String, Object> showLivingCostCache() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("comparison", livingCostComparisonService.stats());
+        return body;
+    }
+
+    // 生活費計算のルールセットの一覧と、計算に使っている版を表示
+    @GetMapping("/calculation-rules")
+    public Map<String, Object> showCalculationRules() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("currentVersion", calculationRuleService.current().getVersion());
+        body.put("ruleSets", calculationRuleService.findAll());
+        return body;
+    }
+
+    // 新しい版のルールセットを登録する（activate=trueの場合はすぐに計算に使う）
+    @PostMapping("/calculation-rules")
+    public Map<String, Object> createCalculationRules(@RequestParam int maxRentRatePercent,
+                                                      @RequestParam int utilitiesRatePercent,
+                                                      @RequestParam int foodRatePercent,
+                                                      @RequestParam int othersRatePercent,
+                                                      @RequestParam int monthlyCommunicationFee,
+                                                      @RequestParam(defaultValue = "true") boolean activate) {
+        logger.info("計算ルールセットの登録リクエスト受信");
+        CalculationPlan created = calculationRuleService.create(new CalculationRuleSet(null,
+            maxRentRatePercent, utilitiesRatePercent, foodRatePercent, othersRatePercent,
+            monthlyCommunicationFee, false), activate);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("version", created.getVersion());
+        body.put("currentVersion", calculationRuleService.current().getVersion());
+        return body;
+    }
+
+    // 指定した版のルールセットに切り替える
+    @PostMapping("/calculation-rules/{version}/activate")
+    public Map<String, Object> activateCalculationRules(@PathVariable int version) {
+        logger.info("計算ルールセットの切り替えリクエスト受信 - 版: {}", version);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("currentVersion", calculationRuleService.activate(version).getVersion());
+        return body;
+    }
+
+    // 計算履歴の非同期書き込みの状態（書き込み待ち・書き込み済み・破棄件数）を表示
+    @GetMapping("/history-writer")
+    public Map<String, Object> showHistoryWriter() {
+        return calculationHistoryWriter.stats();
+    }
+
+    // 計算履歴を全件出力する（監査向け、username省略時は全ユーザー、format=jsonlでJSON Lines）
+    @GetMapping("/history/export")
+    public ResponseEntity<StreamingResponseBody> exportHistory(@RequestParam(required = false) String username,
+                                           @RequestParam(defaultValue = "csv") String format,
+                                           @RequestParam(required = false)
+                                           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                           @RequestParam(required = false)
+                                           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        logger.info("計算履歴の全件出力リクエスト受信 - format: {}", format);
+
+        // 出力を始める前にパラメータを確認する
+        User user;
+        CalculationHistoryExportService.Format exportFormat;
+        try {
+            user = username == null || username.isEmpty() ? null : userService.findByUsername(username);
+            exportFormat = CalculationHistoryExportService.Format.of(format);
+            calculationHistoryExportService.checkRange(from, to);
+        } catch (InvalidParameterException e) {
+            logger.warn("計算履歴の全件出力のパラメータが不正です: {}", e.getMessage());
+            return exportError(e.getMessage());
+        } catch (UserNotFoundException e) {
+            logger.warn("計算履歴の全件出力のユーザーが見つかりません");
+            return exportError("ユーザーが見つかりません: " + username);
+        }
+
+        StreamingResponseBody body = outputStream ->
+            calculationHistoryExportService.export(user, from, to, exportFormat, outputStream);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"calculation-history." + exportFormat.getExtension() + "\"")
+            .body(body);
+    }
+
+    // 全件出力のエラー（応答の型をストリーミングにそろえるため、JSONを直接書き出す）
+    private ResponseEntity<StreamingResponseBody> exportError(String message) {
+        StreamingResponseBody body = outputStream ->
+            objectMapper.writeValue(outputStream, Collections.singletonMap("error", message));
+        return ResponseEntity.badRequest()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(body);
+    }
+}
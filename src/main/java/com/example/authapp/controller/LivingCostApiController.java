@@ -0,0 +1,117 @@
+package com.example.authapp.controller;
+
+import java.io.InputStream;
+import java.util.Collections;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.authapp.dto.LivingCostSweep;
+import com.example.authapp.exception.InvalidParameterException;
+import com.example.authapp.service.LivingCostBatchService;
+import com.example.authapp.service.LivingCostComparisonService;
+import com.example.authapp.service.LivingCostService;
+
+/**
+ * 生活費計算のAPI（人事・提携先システムのバッチ処理向け）
+ * 
+ * リクエストごとにHTTP Basic認証で認証する（セッション・CSRFトークンは不要、{@link com.example.authapp.config.SecurityConfig#apiFilterChain}）。
+ * 例: curl -u user:password -H "Content-Type: text/csv" --data-binary @input.csv .../api/living-cost/batch
+ */
+@RestController
+@RequestMapping("/api/living-cost")
+public class LivingCostApiController {
+
+    private static final Logger logger = LoggerFactory.getLogger(LivingCostApiController.class);
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+
+    private final LivingCostService livingCostService;
+
+    private final LivingCostBatchService livingCostBatchService;
+
+    private final LivingCostComparisonService livingCostComparisonService;
+
+    public LivingCostApiController(LivingCostService livingCostService, LivingCostBatchService livingCostBatchService,
+                                   LivingCostComparisonService livingCostComparisonService) {
+        this.livingCostService = livingCostService;
+        this.livingCostBatchService = livingCostBatchService;
+        this.livingCostComparisonService = livingCostComparisonService;
+    }
+
+    // 「郵便番号,年収」のCSVを読みながら生活費を計算し、結果をCSVで返す（履歴には保存しない）
+    @PostMapping("/batch")
+    public ResponseEntity<StreamingResponseBody> calculateBatch(InputStream inputStream) {
+        logger.info("生活費一括計算リクエスト受信");
+
+        // リクエスト本文は読み込みながら処理し、計算できた分から順に返す
+        StreamingResponseBody body = outputStream -> livingCostBatchService.calculateCsv(inputStream, outputStream);
+        return ResponseEntity.ok()
+            .contentType(TEXT_CSV)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"living-cost.csv\"")
+            .body(body);
+    }
+
+    // 1つの郵便番号について、年収を一定間隔で変えた計算結果をまとめて返す（format=csvでCSV、履歴には保存しない）
+    @GetMapping("/sweep")
+    public ResponseEntity<?> sweep(@RequestParam String postalCode,
+                                   @RequestParam int minAnnualIncome,
+                                   @RequestParam int maxAnnualIncome,
+                                   @RequestParam int step,
+                                   @RequestParam(defaultValue = "json") String format) {
+        logger.info("年収スイープ計算リクエスト受信");
+
+        LivingCostSweep sweep;
+        try {
+            sweep = livingCostService.sweep(postalCode, minAnnualIncome, maxAnnualIncome, step);
+        } catch (InvalidParameterException e) {
+            logger.warn("年収スイープ計算のパラメータが不正です: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+
+        if (!"csv".equalsIgnoreCase(format)) {
+            return ResponseEntity.ok(sweep);
+        }
+        return ResponseEntity.ok()
+            .contentType(TEXT_CSV)
+            .body(toCsv(sweep));
+    }
+
+    // 同じ年収を全都道府県で計算し、生活費の合計が少ない順に返す（郵便番号は不要、履歴には保存しない）
+    @GetMapping("/compare")
+    public ResponseEntity<?> compare(@RequestParam int annualIncome) {
+        logger.info("全都道府県比較リクエスト受信");
+        try {
+            return ResponseEntity.ok(livingCostComparisonService.compare(annualIncome));
+        } catch (InvalidParameterException e) {
+            logger.warn("全都道府県比較のパラメータが不正です: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+
+    private static String toCsv(LivingCostSweep sweep) {
+        StringBuilder csv = new StringBuilder(64 + sweep.getPoints() * 64);
+        csv.append("annual_income,monthly_rent,monthly_utilities,monthly_food,monthly_communication,"
+            + "monthly_others,monthly_total,annual_total\n");
+        for (int i = 0; i < sweep.getPoints(); i++) {
+            csv.append(sweep.getAnnualIncome()[i]).append(',')
+                .append(sweep.getMonthlyRent()[i]).append(',')
+                .append(sweep.getMonthlyUtilities()[i]).append(',')
+                .append(sweep.getMonthlyFood()[i]).append(',')
+                .append(sweep.getMonthlyCommunication()[i]).append(',')
+                .append(sweep.getMonthlyOthers()[i]).append(',')
+                .append(sweep.getMonthlyTotal()[i]).append(',')
+                .append(sweep.getAnnualTotal()[i]).append('\n');
+        }
+        return csv.toString();
+    }
+}
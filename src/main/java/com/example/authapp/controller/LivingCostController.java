@@ -1,5 +1,6 @@
 package com.example.authapp.controller;
 
+import java.time.LocalDate;
 import java.util.List;
 
 import javax.validation.Valid;
@@ -10,9 +11,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -25,12 +26,17 @@ import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.authapp.dto.CalculationHistorySlice;
+import com.example.authapp.dto.CalculationHistoryView;
 import com.example.authapp.dto.LivingCostCalculation;
 import com.example.authapp.dto.LivingCostRequest;
 import com.example.authapp.entity.CalculationHistory;
 import com.example.authapp.entity.User;
 import com.example.authapp.repository.CalculationHistoryKensakuRepository;
+import com.example.authapp.service.CalculationHistoryExportService;
+import com.example.authapp.service.CalculationHistoryWriter;
 import com.example.authapp.service.ExcelExportService;
 import com.example.authapp.service.LivingCostService;
 import com.example.authapp.service.UserService;
@@ -53,6 +59,12 @@ public class LivingCostController {
 	@Autowired
     private ExcelExportService excelExportService;
 	
+	@Autowired
+    private CalculationHistoryExportService calculationHistoryExportService;
+	
+	@Autowired
+    private CalculationHistoryWriter calculationHistoryWriter;
+	
 	// 入力画面を表示
     @GetMapping("/calculate")
     public String showCalculateForm(Model model) {
@@ -104,11 +116,14 @@ public class LivingCostController {
     }
     
     // 履歴一覧を表示（ページネーション対応）
+    // pageを指定した場合はページ番号で、指定しない場合は位置（after/before）で取得する
     @GetMapping("/history")
     public String showHistory(
             Model model, 
             Authentication authentication,
-            @RequestParam(defaultValue = "0") int page,  // ページ番号（デフォルト: 0）
+            @RequestParam(required = false) Integer page,  // ページ番号（0始まり）
+            @RequestParam(required = false) String after,  // この位置より古い履歴（次へ）
+            @RequestParam(required = false) String before, // この位置より新しい履歴（前へ）
             @RequestParam(defaultValue = "10") int size) { // 1ページあたりの件数（デフォルト: 10）
         
         logger.info("計算履歴一覧表示リクエスト受信 - page: {}, size: {}", page, size);
@@ -123,25 +138,32 @@ public class LivingCostController {
         
         User user = userService.findByUsername(username);
         
+        if (page == null) {
+            // 位置を指定して取得（後ろのページでも読み飛ばしが発生しない）
+            CalculationHistorySlice historySlice =
+                livingCostService.searchHistory(user, null, null, null, after, before, size);
+            
+            logger.info("計算履歴一覧表示 - 取得件数: {}件 / 総件数: {}件", 
+                       historySlice.getNumberOfElements(), historySlice.getTotalElements());
+            
+            model.addAttribute("historySlice", historySlice);
+            model.addAttribute("histories", historySlice.getContent());
+            return "living-cost/history";
+        }
+        
         // Pageableオブジェクトを作成
         Pageable pageable = PageRequest.of(page, size);
         
-        // 検索結果を取得
-        List<CalculationHistory> histories = 
-            calculationHistoryRepository.searchByConditions(user, null, null, null, page, size);
-        
-        // 総件数を取得
-        long total = calculationHistoryRepository.countByConditions(user, null, null, null);
-        
-        // Pageオブジェクトを作成
-        Page<CalculationHistory> historyPage = new PageImpl<>(histories, pageable, total);
+        // 検索結果を取得（総件数はユーザーごとの件数から取得する）
+        Page<CalculationHistoryView> historyPage =
+            livingCostService.searchHistory(user, null, null, null, pageable);
         
         logger.info("計算履歴一覧表示 - 取得件数: {}件 / 総件数: {}件 / 総ページ数: {}", 
-                   histories.size(), total, historyPage.getTotalPages());
+                   historyPage.getNumberOfElements(), historyPage.getTotalElements(), historyPage.getTotalPages());
         
         // Modelに追加
         model.addAttribute("historyPage", historyPage);  // Pageオブジェクト
-        model.addAttribute("histories", histories);        // リスト（既存のコードとの互換性のため）
+        model.addAttribute("histories", historyPage.getContent()); // リスト（既存のコードとの互換性のため）
         
         return "living-cost/history";
     }
@@ -162,6 +184,9 @@ public class LivingCostController {
     	
     	User user = userService.findByUsername(username);
     	
+    	// 計算履歴は非同期に書き込むため、直前の計算結果を書き込んでから読む
+    	calculationHistoryWriter.flushPending();
+    	
     	// 最新の計算履歴を取得（1件のみ）
     	List<CalculationHistory> histories = 
     		calculationHistoryRepository.searchByConditions(user, null, null, null, 0, 1);
@@ -202,5 +227,35 @@ public class LivingCostController {
     		.body(new ByteArrayResource(excelBytes));
     }
     
+    //計算履歴の全件出力（CSVまたはJSON Lines、読みながら書き出すため件数によらずメモリ使用量は一定）
+    @GetMapping("/history/export")
+    public ResponseEntity<StreamingResponseBody> exportHistory(
+            Authentication authentication,
+            @RequestParam(defaultValue = "csv") String format, // 出力形式（csv / jsonl）
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from, // この日以降
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) { // この日まで
+    	logger.info("計算履歴の全件出力リクエスト受信 - format: {}", format);
+    	
+    	// 認証チェック
+    	if (authentication == null || !authentication.isAuthenticated()) {
+    		logger.warn("未認証ユーザーが計算履歴の全件出力にアクセス");
+    		return ResponseEntity.status(org.springframework.http.HttpStatus.UNAUTHORIZED).build();
+    	}
+    	
+    	User user = userService.findByUsername(authentication.getName());
+    	
+    	// 出力を始める前にパラメータを確認する（始めた後はエラー画面を返せない）
+    	CalculationHistoryExportService.Format exportFormat = CalculationHistoryExportService.Format.of(format);
+    	calculationHistoryExportService.checkRange(from, to);
+    	
+    	StreamingResponseBody body = outputStream ->
+    		calculationHistoryExportService.export(user, from, to, exportFormat, outputStream);
+    	return ResponseEntity.ok()
+    		.contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+    		.header(HttpHeaders.CONTENT_DISPOSITION,
+    			"attachment; filename=\"calculation-history." + exportFormat.getExtension() + "\"")
+    		.body(body);
+    }
+    
 
 }
@@ -0,0 +1,59 @@
+package com.example.authapp.controller;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.authapp.dto.PostalCodeBulkRequest;
+import com.example.authapp.service.PostalCodeService;
+
+/**
+ * 郵便番号解決のJSON API（バックオフィスのバッチ処理向け）
+ * 
+ * リクエストごとにHTTP Basic認証で認証する（セッション・CSRFトークンは不要、{@link com.example.authapp.config.SecurityConfig#apiFilterChain}）。
+ */
+@RestController
+@RequestMapping("/api/postal-codes")
+public class PostalCodeApiController {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostalCodeApiController.class);
+
+    private final PostalCodeService postalCodeService;
+
+    // 1回のリクエストで受け付ける郵便番号の最大件数
+    private final int maxCodes;
+
+    public PostalCodeApiController(PostalCodeService postalCodeService,
+                                   @Value("${zipcloud.bulk.max-codes:10000}") int maxCodes) {
+        this.postalCodeService = postalCodeService;
+        this.maxCodes = maxCodes;
+    }
+
+    // 郵便番号をまとめて都道府県名に解決する
+    @PostMapping("/resolve")
+    public ResponseEntity<Map<String, Object>> resolve(@RequestBody PostalCodeBulkRequest request) {
+        List<String> postalCodes = request.getPostalCodes() != null
+            ? request.getPostalCodes() : Collections.<String>emptyList();
+        logger.info("郵便番号一括解決リクエスト受信 - 件数: {}件", postalCodes.size());
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        if (postalCodes.size() > maxCodes) {
+            logger.warn("郵便番号一括解決の件数が上限を超えています - 件数: {}件", postalCodes.size());
+            body.put("error", "郵便番号は" + maxCodes + "件以下で指定してください");
+            return ResponseEntity.badRequest().body(body);
+        }
+
+        body.put("results", postalCodeService.getPrefectureNames(postalCodes));
+        return ResponseEntity.ok(body);
+    }
+}
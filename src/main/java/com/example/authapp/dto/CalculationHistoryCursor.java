@@ -0,0 +1,73 @@
+package com.example.authapp.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import com.example.authapp.exception.InvalidParameterException;
+
+/**
+ * 計算履歴の一覧での位置（作成日時, ID）
+ *
+ * 一覧は作成日時の降順・IDの降順に並べるため、この2つで1行を一意に指定できる。
+ * 画面やAPIには中身を意識させないよう、Base64（URLセーフ）に変換した文字列で受け渡す。
+ */
+public final class CalculationHistoryCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final LocalDateTime createdAt;
+    private final long id;
+
+    public CalculationHistoryCursor(LocalDateTime createdAt, long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    /**
+     * 計算履歴の一覧の行の位置を取得する
+     */
+    public static CalculationHistoryCursor of(CalculationHistoryView history) {
+        return new CalculationHistoryCursor(history.getCreatedAt(), history.getId());
+    }
+
+    /**
+     * 文字列に変換した位置を読み込む
+     *
+     * @param encoded {@link #encode()} で変換した文字列
+     * @return 位置
+     * @throws InvalidParameterException 読み込めない文字列の場合
+     */
+    public static CalculationHistoryCursor decode(String encoded) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new InvalidParameterException("履歴の位置が不正です");
+            }
+            return new CalculationHistoryCursor(
+                LocalDateTime.parse(decoded.substring(0, separator)),
+                Long.parseLong(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // NumberFormatExceptionはIllegalArgumentExceptionに含まれる
+            throw new InvalidParameterException("履歴の位置が不正です", e);
+        }
+    }
+
+    /**
+     * 画面やAPIで受け渡す文字列に変換する
+     */
+    public String encode() {
+        String raw = createdAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+}
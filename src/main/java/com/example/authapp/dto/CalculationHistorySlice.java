@@ -0,0 +1,65 @@
+package com.example.authapp.dto;
+
+import java.util.List;
+
+/**
+ * 位置（カーソル）を指定して取得した計算履歴の一覧の1ページ分
+ *
+ * ページ番号の代わりに、前後のページを取得するための位置を持つ。
+ * 前後のページがない場合、その位置はnullになる。
+ * 総件数は数えるのに時間がかかる場合は求めず、nullになる。
+ */
+public class CalculationHistorySlice {
+
+    private final List<CalculationHistoryView> content;
+    private final int size;
+    private final Long totalElements;
+    private final String previousCursor;
+    private final String nextCursor;
+
+    public CalculationHistorySlice(List<CalculationHistoryView> content, int size, Long totalElements,
+                                   String previousCursor, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.totalElements = totalElements;
+        this.previousCursor = previousCursor;
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean hasPrevious() {
+        return previousCursor != null;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean isEmpty() {
+        return content.isEmpty();
+    }
+
+    public int getNumberOfElements() {
+        return content.size();
+    }
+
+    // Getters
+    public List<CalculationHistoryView> getContent() {
+        return content;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public Long getTotalElements() {
+        return totalElements;
+    }
+
+    public String getPreviousCursor() {
+        return previousCursor;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
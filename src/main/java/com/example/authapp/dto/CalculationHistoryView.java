@@ -0,0 +1,59 @@
+package com.example.authapp.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 計算履歴の一覧に表示する1行（不変）
+ *
+ * 一覧は読み取り専用のため、エンティティを読み込まず必要な列だけを検索結果から直接作る。
+ * 永続化コンテキストに登録されず、変更の検出用の写しやユーザーのプロキシも作られない。
+ */
+public final class CalculationHistoryView {
+
+    private final long id;
+    private final String postalCode;
+    private final String prefectureName;
+    private final Integer annualIncome;
+    private final Integer monthlyTotal;
+    private final Integer annualTotal;
+    private final LocalDateTime createdAt;
+
+    public CalculationHistoryView(long id, String postalCode, String prefectureName, Integer annualIncome,
+                                  Integer monthlyTotal, Integer annualTotal, LocalDateTime createdAt) {
+        this.id = id;
+        this.postalCode = postalCode;
+        this.prefectureName = prefectureName;
+        this.annualIncome = annualIncome;
+        this.monthlyTotal = monthlyTotal;
+        this.annualTotal = annualTotal;
+        this.createdAt = createdAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getPostalCode() {
+        return postalCode;
+    }
+
+    public String getPrefectureName() {
+        return prefectureName;
+    }
+
+    public Integer getAnnualIncome() {
+        return annualIncome;
+    }
+
+    public Integer getMonthlyTotal() {
+        return monthlyTotal;
+    }
+
+    public Integer getAnnualTotal() {
+        return annualTotal;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.authapp.dto;
+
+/**
+ * 生活費の内訳（不変）
+ * 
+ * 平均家賃と年収だけで決まる計算結果で、郵便番号などの入力は含まない。
+ */
+public final class LivingCostBreakdown {
+    
+    private final int monthlyRent;
+    private final int monthlyUtilities;
+    private final int monthlyFood;
+    private final int monthlyCommunication;
+    private final int monthlyOthers;
+    
+    public LivingCostBreakdown(int monthlyRent, int monthlyUtilities, int monthlyFood,
+            int monthlyCommunication, int monthlyOthers) {
+        this.monthlyRent = monthlyRent;
+        this.monthlyUtilities = monthlyUtilities;
+        this.monthlyFood = monthlyFood;
+        this.monthlyCommunication = monthlyCommunication;
+        this.monthlyOthers = monthlyOthers;
+    }
+    
+    /**
+     * 入力を付けて画面表示・履歴保存用の計算結果に変換する
+     * 
+     * @param postalCode 郵便番号
+     * @param prefecture 都道府県名
+     * @param annualIncome 年収
+     * @return 計算結果（呼び出しごとに新しいインスタンス）
+     */
+    public LivingCostCalculation toCalculation(String postalCode, String prefecture, int annualIncome) {
+        return new LivingCostCalculation(postalCode, prefecture, annualIncome,
+            monthlyRent, monthlyUtilities, monthlyFood, monthlyCommunication, monthlyOthers);
+    }
+    
+    public int getMonthlyRent() {
+        return monthlyRent;
+    }
+    
+    public int getMonthlyUtilities() {
+        return monthlyUtilities;
+    }
+    
+    public int getMonthlyFood() {
+        return monthlyFood;
+    }
+    
+    public int getMonthlyCommunication() {
+        return monthlyCommunication;
+    }
+    
+    public int getMonthlyOthers() {
+        return monthlyOthers;
+    }
+    
+    public int getMonthlyTotal() {
+        return monthlyRent + monthlyUtilities + monthlyFood + monthlyCommunication + monthlyOthers;
+    }
+    
+    public int getAnnualTotal() {
+        return getMonthlyTotal() * 12;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.authapp.dto;
+
+import java.util.List;
+
+/**
+ * 同じ年収を全都道府県の平均家賃で計算し、生活費の合計が少ない順に並べた結果（不変）
+ * 
+ * 平均家賃が登録されていない都道府県は含まない。
+ */
+public final class LivingCostComparison {
+    
+    private final int annualIncome;
+    private final int ruleVersion;
+    private final List<Entry> rankings;
+    
+    public LivingCostComparison(int annualIncome, int ruleVersion, List<Entry> rankings) {
+        this.annualIncome = annualIncome;
+        this.ruleVersion = ruleVersion;
+        this.rankings = rankings;
+    }
+    
+    public int getAnnualIncome() {
+        return annualIncome;
+    }
+    
+    public int getRuleVersion() {
+        return ruleVersion;
+    }
+    
+    public List<Entry> getRankings() {
+        return rankings;
+    }
+    
+    /**
+     * 1都道府県分の計算結果
+     */
+    public static final class Entry {
+        
+        private final int rank;
+        private final int prefectureCode;
+        private final String prefecture;
+        private final int averageRent;
+        private final LivingCostBreakdown breakdown;
+        
+        public Entry(int rank, int prefectureCode, String prefecture, int averageRent, LivingCostBreakdown breakdown) {
+            this.rank = rank;
+            this.prefectureCode = prefectureCode;
+            this.prefecture = prefecture;
+            this.averageRent = averageRent;
+            this.breakdown = breakdown;
+        }
+        
+        public int getRank() {
+            return rank;
+        }
+        
+        public int getPrefectureCode() {
+            return prefectureCode;
+        }
+        
+        public String getPrefecture() {
+            return prefecture;
+        }
+        
+        public int getAverageRent() {
+            return averageRent;
+        }
+        
+        public int getMonthlyRent() {
+            return breakdown.getMonthlyRent();
+        }
+        
+        public int getMonthlyUtilities() {
+            return breakdown.getMonthlyUtilities();
+        }
+        
+        public int getMonthlyFood() {
+            return breakdown.getMonthlyFood();
+        }
+        
+        public int getMonthlyCommunication() {
+            return breakdown.getMonthlyCommunication();
+        }
+        
+        public int getMonthlyOthers() {
+            return breakdown.getMonthlyOthers();
+        }
+        
+        public int getMonthlyTotal() {
+            return breakdown.getMonthlyTotal();
+        }
+        
+        public int getAnnualTotal() {
+            return breakdown.getAnnualTotal();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.authapp.dto;
+
+/**
+ * 1つの郵便番号について年収を一定間隔で変えた計算結果（年収スイープ）
+ * 
+ * 各配列の同じ位置が同じ年収の結果に対応する。
+ */
+public class LivingCostSweep {
+    
+    private final String postalCode;
+    private final String prefecture;
+    private final int ruleVersion;
+    private final int[] annualIncome;
+    private final int[] monthlyRent;
+    private final int[] monthlyUtilities;
+    private final int[] monthlyFood;
+    private final int[] monthlyCommunication;
+    private final int[] monthlyOthers;
+    private final int[] monthlyTotal;
+    private final int[] annualTotal;
+    
+    public LivingCostSweep(String postalCode, String prefecture, int ruleVersion, int[] annualIncome,
+            int[] monthlyRent, int[] monthlyUtilities, int[] monthlyFood, int[] monthlyCommunication,
+            int[] monthlyOthers, int[] monthlyTotal, int[] annualTotal) {
+        this.postalCode = postalCode;
+        this.prefecture = prefecture;
+        this.ruleVersion = ruleVersion;
+        this.annualIncome = annualIncome;
+        this.monthlyRent = monthlyRent;
+        this.monthlyUtilities = monthlyUtilities;
+        this.monthlyFood = monthlyFood;
+        this.monthlyCommunication = monthlyCommunication;
+        this.monthlyOthers = monthlyOthers;
+        this.monthlyTotal = monthlyTotal;
+        this.annualTotal = annualTotal;
+    }
+    
+    // 計算した年収の数
+    public int getPoints() {
+        return annualIncome.length;
+    }
+    
+    // Getters
+    public String getPostalCode() {
+        return postalCode;
+    }
+    
+    public String getPrefecture() {
+        return prefecture;
+    }
+    
+    public int getRuleVersion() {
+        return ruleVersion;
+    }
+    
+    public int[] getAnnualIncome() {
+        return annualIncome;
+    }
+    
+    public int[] getMonthlyRent() {
+        return monthlyRent;
+    }
+    
+    public int[] getMonthlyUtilities() {
+        return monthlyUtilities;
+    }
+    
+    public int[] getMonthlyFood() {
+        return monthlyFood;
+    }
+    
+    public int[] getMonthlyCommunication() {
+        return monthlyCommunication;
+    }
+    
+    public int[] getMonthlyOthers() {
+        return monthlyOthers;
+    }
+    
+    public int[] getMonthlyTotal() {
+        return monthlyTotal;
+    }
+    
+    public int[] getAnnualTotal() {
+        return annualTotal;
+    }
+}
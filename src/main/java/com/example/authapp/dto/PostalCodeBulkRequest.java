@@ -0,0 +1,27 @@
+package com.example.authapp.dto;
+
+import java.util.List;
+
+/**
+ * 郵便番号一括解決APIのリクエスト
+ */
+public class PostalCodeBulkRequest {
+    
+    private List<String> postalCodes;
+    
+    public PostalCodeBulkRequest() {
+    }
+    
+    public PostalCodeBulkRequest(List<String> postalCodes) {
+        this.postalCodes = postalCodes;
+    }
+    
+    // Getters and Setters
+    public List<String> getPostalCodes() {
+        return postalCodes;
+    }
+    
+    public void setPostalCodes(List<String> postalCodes) {
+        this.postalCodes = postalCodes;
+    }
+}
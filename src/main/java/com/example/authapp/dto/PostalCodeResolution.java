@@ -0,0 +1,61 @@
+package com.example.authapp.dto;
+
+/**
+ * 郵便番号1件分の解決結果（一括解決API用）
+ */
+public class PostalCodeResolution {
+    
+    // 解決元
+    public static final String SOURCE_LOCAL = "LOCAL";       // 同梱の索引・上3桁の表
+    public static final String SOURCE_CACHE = "CACHE";       // APIの検索結果のキャッシュ
+    public static final String SOURCE_API = "API";           // zipcloud API
+    public static final String SOURCE_FALLBACK = "FALLBACK"; // APIで解決できず上3桁から推定
+    
+    private String postalCode;
+    private String prefecture;
+    private String source;
+    private String error;
+    
+    public PostalCodeResolution() {
+    }
+    
+    public PostalCodeResolution(String postalCode, String prefecture, String source, String error) {
+        this.postalCode = postalCode;
+        this.prefecture = prefecture;
+        this.source = source;
+        this.error = error;
+    }
+    
+    // Getters and Setters
+    public String getPostalCode() {
+        return postalCode;
+    }
+    
+    public void setPostalCode(String postalCode) {
+        this.postalCode = postalCode;
+    }
+    
+    public String getPrefecture() {
+        return prefecture;
+    }
+    
+    public void setPrefecture(String prefecture) {
+        this.prefecture = prefecture;
+    }
+    
+    public String getSource() {
+        return source;
+    }
+    
+    public void setSource(String source) {
+        this.source = source;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -7,8 +7,16 @@ import java.time.LocalDateTime;
 @Table(name = "calculation_histories")
 public class CalculationHistory {
     
+    // IDを採番するシーケンス（IDENTITYではJDBCのバッチ挿入が使えないため、シーケンスからまとめて払い出す）
+    public static final String ID_SEQUENCE_NAME = "calculation_histories_seq";
+    
+    // 1回のシーケンス参照で払い出すIDの数
+    public static final int ID_ALLOCATION_SIZE = 50;
+    
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "calculation_history_id")
+    @SequenceGenerator(name = "calculation_history_id", sequenceName = ID_SEQUENCE_NAME,
+                       allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
     
     // ユーザーとの関連付け（多対一の関係）
@@ -48,6 +56,10 @@ public class CalculationHistory {
     @Column(name = "annual_total")
     private Integer annualTotal;
     
+    // 計算に使ったルールセットの版（導入前の履歴はnull）
+    @Column(name = "rule_version")
+    private Integer ruleVersion;
+    
     // 作成日時
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -76,9 +88,12 @@ public class CalculationHistory {
     }
     
     // 作成日時を自動設定（エンティティ保存前に実行）
+    // 非同期で書き込む場合は計算した日時を残すため、設定済みなら上書きしない
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
     }
     
     // Getters and Setters
@@ -178,6 +193,14 @@ public class CalculationHistory {
         this.annualTotal = annualTotal;
     }
     
+    public Integer getRuleVersion() {
+        return ruleVersion;
+    }
+    
+    public void setRuleVersion(Integer ruleVersion) {
+        this.ruleVersion = ruleVersion;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,142 @@
+package com.example.authapp.entity;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 生活費計算の率・固定費（ルールセット）
+ * 版ごとに1行で、有効なものは1つだけ
+ */
+@Entity
+@Table(name = "calculation_rule_sets")
+public class CalculationRuleSet {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    // 版数（計算履歴に記録する）
+    @Column(name = "version", unique = true, nullable = false)
+    private Integer version;
+    
+    // 家賃上限率（年収を月割りした額に対する%）
+    @Column(name = "max_rent_rate_percent", nullable = false)
+    private Integer maxRentRatePercent;
+    
+    // 光熱費率（家賃に対する%）
+    @Column(name = "utilities_rate_percent", nullable = false)
+    private Integer utilitiesRatePercent;
+    
+    // 食費率（年収を月割りした額に対する%）
+    @Column(name = "food_rate_percent", nullable = false)
+    private Integer foodRatePercent;
+    
+    // その他率（年収を月割りした額に対する%）
+    @Column(name = "others_rate_percent", nullable = false)
+    private Integer othersRatePercent;
+    
+    // 通信費（月額）
+    @Column(name = "monthly_communication_fee", nullable = false)
+    private Integer monthlyCommunicationFee;
+    
+    // 計算に使う版かどうか
+    @Column(name = "active", nullable = false)
+    private boolean active;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    public CalculationRuleSet() {
+    }
+    
+    public CalculationRuleSet(Integer version, Integer maxRentRatePercent, Integer utilitiesRatePercent,
+                              Integer foodRatePercent, Integer othersRatePercent,
+                              Integer monthlyCommunicationFee, boolean active) {
+        this.version = version;
+        this.maxRentRatePercent = maxRentRatePercent;
+        this.utilitiesRatePercent = utilitiesRatePercent;
+        this.foodRatePercent = foodRatePercent;
+        this.othersRatePercent = othersRatePercent;
+        this.monthlyCommunicationFee = monthlyCommunicationFee;
+        this.active = active;
+    }
+    
+    // 作成日時を自動設定（エンティティ保存前に実行）
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Integer getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+    
+    public Integer getMaxRentRatePercent() {
+        return maxRentRatePercent;
+    }
+    
+    public void setMaxRentRatePercent(Integer maxRentRatePercent) {
+        this.maxRentRatePercent = maxRentRatePercent;
+    }
+    
+    public Integer getUtilitiesRatePercent() {
+        return utilitiesRatePercent;
+    }
+    
+    public void setUtilitiesRatePercent(Integer utilitiesRatePercent) {
+        this.utilitiesRatePercent = utilitiesRatePercent;
+    }
+    
+    public Integer getFoodRatePercent() {
+        return foodRatePercent;
+    }
+    
+    public void setFoodRatePercent(Integer foodRatePercent) {
+        this.foodRatePercent = foodRatePercent;
+    }
+    
+    public Integer getOthersRatePercent() {
+        return othersRatePercent;
+    }
+    
+    public void setOthersRatePercent(Integer othersRatePercent) {
+        this.othersRatePercent = othersRatePercent;
+    }
+    
+    public Integer getMonthlyCommunicationFee() {
+        return monthlyCommunicationFee;
+    }
+    
+    public void setMonthlyCommunicationFee(Integer monthlyCommunicationFee) {
+        this.monthlyCommunicationFee = monthlyCommunicationFee;
+    }
+    
+    public boolean isActive() {
+        return active;
+    }
+    
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
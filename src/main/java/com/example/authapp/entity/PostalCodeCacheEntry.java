@@ -0,0 +1,59 @@
+package com.example.authapp.entity;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * zipcloud APIで解決した郵便番号の永続キャッシュ
+ * 再起動後もキャッシュを温めた状態で起動するために使う
+ */
+@Entity
+@Table(name = "postal_code_cache")
+public class PostalCodeCacheEntry {
+    
+    // ハイフンを除いた7桁の郵便番号
+    @Id
+    @Column(name = "postal_code", length = 7)
+    private String postalCode;
+    
+    @Column(name = "prefecture_name", nullable = false)
+    private String prefectureName;
+    
+    // APIで解決した日時
+    @Column(name = "resolved_at", nullable = false)
+    private LocalDateTime resolvedAt;
+    
+    public PostalCodeCacheEntry() {
+    }
+    
+    public PostalCodeCacheEntry(String postalCode, String prefectureName, LocalDateTime resolvedAt) {
+        this.postalCode = postalCode;
+        this.prefectureName = prefectureName;
+        this.resolvedAt = resolvedAt;
+    }
+    
+    // Getters and Setters
+    public String getPostalCode() {
+        return postalCode;
+    }
+    
+    public void setPostalCode(String postalCode) {
+        this.postalCode = postalCode;
+    }
+    
+    public String getPrefectureName() {
+        return prefectureName;
+    }
+    
+    public void setPrefectureName(String prefectureName) {
+        this.prefectureName = prefectureName;
+    }
+    
+    public LocalDateTime getResolvedAt() {
+        return resolvedAt;
+    }
+    
+    public void setResolvedAt(LocalDateTime resolvedAt) {
+        this.resolvedAt = resolvedAt;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.authapp.exception;
+
+/**
+ * 外部APIを呼び出さずに拒否した場合にスローされる例外
+ * （同時呼び出し数の上限に達した場合など）
+ */
+public class ExternalApiRejectedException extends ExternalApiException {
+    
+    public ExternalApiRejectedException() {
+        super();
+    }
+    
+    public ExternalApiRejectedException(String message) {
+        super(message);
+    }
+    
+    public ExternalApiRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
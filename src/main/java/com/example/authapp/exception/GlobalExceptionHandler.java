@@ -35,6 +35,18 @@ public class GlobalExceptionHandler {
         return "error/postal-code-not-found";
     }
     
+    /**
+     * RentNotRegisteredExceptionのハンドリング
+     * 都道府県の平均家賃が未登録の場合は、入力の誤りではないため管理者への依頼を案内する
+     */
+    @ExceptionHandler(RentNotRegisteredException.class)
+    public String handleRentNotRegisteredException(RentNotRegisteredException e, Model model) {
+        logger.warn("平均家賃が登録されていません: {}" , e.getPrefecture());
+        model.addAttribute("errorMessage", e.getPrefecture()
+            + "の平均家賃が登録されていないため計算できません。管理者に平均家賃の登録を依頼してください。");
+        return "error/rent-not-registered";
+    }
+    
     /**
      * InvalidParameterExceptionのハンドリング
      */
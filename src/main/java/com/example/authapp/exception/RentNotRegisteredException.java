@@ -0,0 +1,21 @@
+package com.example.authapp.exception;
+
+/**
+ * 都道府県の平均家賃が登録されていないため生活費を計算できない場合にスローされる例外
+ * 
+ * 平均家賃は管理者が登録する（POST /admin/prefectures/{code}/average-rent）。
+ */
+public class RentNotRegisteredException extends InvalidParameterException {
+    
+    // 平均家賃が登録されていない都道府県名
+    private final String prefecture;
+    
+    public RentNotRegisteredException(String prefecture) {
+        super("平均家賃が登録されていない都道府県です: " + prefecture);
+        this.prefecture = prefecture;
+    }
+    
+    public String getPrefecture() {
+        return prefecture;
+    }
+}
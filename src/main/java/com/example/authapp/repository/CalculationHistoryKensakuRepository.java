@@ -1,17 +1,41 @@
 package com.example.authapp.repository;
 
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.LocalDateTimeType;
+import org.hibernate.type.StandardBasicTypes;
+import org.hibernate.type.Type;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.authapp.dto.CalculationHistoryCursor;
+import com.example.authapp.dto.CalculationHistoryView;
 import com.example.authapp.entity.CalculationHistory;
 import com.example.authapp.entity.User;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
 import javax.persistence.Query;
 
 @Repository
@@ -20,8 +44,69 @@ public class CalculationHistoryKensakuRepository {
     @PersistenceContext
     private EntityManager entityManager;
     
+    // 全件出力はEntityManagerを使わず、StatelessSessionを開いて読む
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+    
     private static final Logger logger = LoggerFactory.getLogger(CalculationHistoryKensakuRepository.class);
     
+    // 検索条件の組み合わせを表すビット（指定した条件の和を配列の添字にする）
+    private static final int CONDITION_USER = 1;
+    private static final int CONDITION_POSTAL_CODE = 2;
+    private static final int CONDITION_MIN_ANNUAL_INCOME = 4;
+    private static final int CONDITION_MAX_ANNUAL_INCOME = 8;
+    private static final int CONDITION_COMBINATIONS = 16;
+    
+    /**
+     * 全件出力で読む列（出力の列名と順序にも使う）
+     */
+    public static final List<String> EXPORT_COLUMNS = Collections.unmodifiableList(Arrays.asList(
+        "id", "user_id", "postal_code", "prefecture_name", "annual_income",
+        "monthly_rent", "monthly_utilities", "monthly_food", "monthly_communication", "monthly_others",
+        "monthly_total", "annual_total", "rule_version", "created_at"));
+    
+    // 全件出力で読む列の型（EXPORT_COLUMNSと同じ順）
+    private static final Type[] EXPORT_COLUMN_TYPES = {
+        StandardBasicTypes.LONG, StandardBasicTypes.LONG, StandardBasicTypes.STRING, StandardBasicTypes.STRING,
+        StandardBasicTypes.INTEGER, StandardBasicTypes.INTEGER, StandardBasicTypes.INTEGER, StandardBasicTypes.INTEGER,
+        StandardBasicTypes.INTEGER, StandardBasicTypes.INTEGER, StandardBasicTypes.INTEGER, StandardBasicTypes.INTEGER,
+        StandardBasicTypes.INTEGER, LocalDateTimeType.INSTANCE };
+    
+    // 位置を指定した検索の種類（位置あり=2 + 新しい履歴=1）
+    private static final int CURSOR_WITH_POSITION = 2;
+    private static final int CURSOR_NEWER = 1;
+    private static final int CURSOR_MODES = 4;
+    
+    // 検索条件の組み合わせごとに組み立て済みのSQL文
+    // 呼び出しごとに組み立てず、同じ条件では同じ文字列を使うため、
+    // HibernateのクエリプランキャッシュとH2のセッションごとのクエリキャッシュで解析済みの結果が再利用される
+    // 一覧（CalculationHistoryView）の検索は必要な列だけを読む
+    private static final String[] OFFSET_SQL = new String[CONDITION_COMBINATIONS];
+    private static final String[] VIEW_OFFSET_SQL = new String[CONDITION_COMBINATIONS];
+    private static final String[][] VIEW_CURSOR_SQL = new String[CONDITION_COMBINATIONS][CURSOR_MODES];
+    private static final String[] COUNT_SQL = new String[CONDITION_COMBINATIONS];
+    
+    static {
+        for (int conditions = 0; conditions < CONDITION_COMBINATIONS; conditions++) {
+            OFFSET_SQL[conditions] = buildOffsetSql(conditions, false);
+            VIEW_OFFSET_SQL[conditions] = buildOffsetSql(conditions, true);
+            
+            for (int mode = 0; mode < CURSOR_MODES; mode++) {
+                VIEW_CURSOR_SQL[conditions][mode] = buildCursorSql(conditions, mode);
+            }
+            
+            StringBuilder sql = new StringBuilder();
+            sql.append("SELECT COUNT(*) ");
+            sql.append("FROM calculation_histories A ");
+            appendConditions(sql, conditions);
+            COUNT_SQL[conditions] = sql.toString();
+        }
+    }
+    
+    // saveAllで永続化コンテキストを書き出して空にする件数（JDBCのバッチサイズに合わせる）
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+    
     
     
     /**
@@ -40,101 +125,108 @@ public class CalculationHistoryKensakuRepository {
                                                        Integer minAnnualIncome, 
                                                        Integer maxAnnualIncome,
                                                        int page, int size) {
-        // 個人情報を含む検索条件はログに出力しない（プライバシー保護）
-        logger.debug("検索開始 - user: {}, postalCode: {}**, 条件数: {}, page: {}, size: {}", 
-                     user != null ? "あり" : "なし", 
-                     postalCode != null && postalCode.length() >= 3 ? postalCode.substring(0, 3) + "****" : "****",
-                     (user != null ? 1 : 0) + (postalCode != null && !postalCode.isEmpty() ? 1 : 0) + 
-                     (minAnnualIncome != null ? 1 : 0) + (maxAnnualIncome != null ? 1 : 0),
-                     page, size);
-                
-        // StringBuilderでネイティブSQL文を組み立て
-        StringBuilder sql = new StringBuilder();
-        sql.append("SELECT ");
+        int conditions = conditionsOf(user, postalCode, minAnnualIncome, maxAnnualIncome);
+        Query query = entityManager.createNativeQuery(OFFSET_SQL[conditions], CalculationHistory.class);
         
-        sql.append("A.id, ");        
-        sql.append("A.user_id, ");
-        sql.append("A.postal_code, ");
-        sql.append("A.prefecture_name, ");
-        sql.append("A.annual_income, ");
-        sql.append("A.monthly_rent, ");  
-        sql.append("A.monthly_utilities, ");  
-        sql.append("A.monthly_food, ");  
-        sql.append("A.monthly_communication, ");  
-        sql.append("A.monthly_others, ");  
-        sql.append("A.monthly_total, ");  
-        sql.append("A.annual_total, ");  
-        sql.append("A.created_at "); 
-        
-        sql.append("FROM calculation_histories A ");
-        
-        sql.append("WHERE 1 = 1 ");  //後続がANDでも問題ない
+        int paramIndex = bindConditions(query, conditions, user, postalCode, minAnnualIncome, maxAnnualIncome);
+        query.setParameter(paramIndex++, size);
+        query.setParameter(paramIndex++, (long) page * size);
         
-        // パラメータの位置を管理
-        int paramIndex = 1;
+        @SuppressWarnings("unchecked")
+        List<CalculationHistory> results = query.getResultList();
+        return results;
+    }
+    
+    /**
+     * 動的な条件で、先頭から指定した件数を読み飛ばして計算履歴の一覧を検索する
+     * 
+     * エンティティは読み込まず、一覧に表示する列だけを {@link CalculationHistoryView} に詰める。
+     * 
+     * @param user ユーザー（nullの場合は全ユーザー）
+     * @param postalCode 郵便番号（nullの場合は条件に含めない）
+     * @param minAnnualIncome 年収の最小値（nullの場合は条件に含めない）
+     * @param maxAnnualIncome 年収の最大値（nullの場合は条件に含めない）
+     * @param offset 読み飛ばす件数
+     * @param limit 取得する最大件数
+     * @return 検索結果のリスト
+     */
+    @Transactional(readOnly = true)
+    public List<CalculationHistoryView> searchByOffset(User user, String postalCode, 
+                                                   Integer minAnnualIncome, 
+                                                   Integer maxAnnualIncome,
+                                                   long offset, int limit) {
+        int conditions = conditionsOf(user, postalCode, minAnnualIncome, maxAnnualIncome);
         
-        // ユーザーIDで絞り込み
-        if (user != null) {
-            sql.append(" AND A.user_id = ?");
-            paramIndex++;
+        // 個人情報を含む検索条件はログに出力しない（プライバシー保護）
+        if (logger.isDebugEnabled()) {
+            logger.debug("検索開始 - user: {}, postalCode: {}**, 条件数: {}, offset: {}, limit: {}", 
+                         user != null ? "あり" : "なし", 
+                         postalCode != null && postalCode.length() >= 3 ? postalCode.substring(0, 3) + "****" : "****",
+                         Integer.bitCount(conditions), offset, limit);
         }
         
-        // 郵便番号で絞り込み
-        if (postalCode != null && !postalCode.isEmpty()) {
-            sql.append(" AND A.postal_code = ?");
-            paramIndex++;
-        }
+        // 組み立て済みのネイティブSQL文でクエリを作成
+        String sql = VIEW_OFFSET_SQL[conditions];
+        Query query = createViewQuery(sql);
         
-        // 年収の最小値で絞り込み
-        if (minAnnualIncome != null) {
-            sql.append(" AND A.annual_income >= ?");
-            paramIndex++;
-        }
+        // パラメータを設定（位置を明示的に指定）
+        int paramIndex = bindConditions(query, conditions, user, postalCode, minAnnualIncome, maxAnnualIncome);
         
-        // 年収の最大値で絞り込み
-        if (maxAnnualIncome != null) {
-            sql.append(" AND A.annual_income <= ?");
-            paramIndex++;
-        }
+        // LIMITとOFFSETのパラメータを設定
+        query.setParameter(paramIndex++, limit);
+        query.setParameter(paramIndex++, offset);
         
-        // 作成日時の降順でソート
-        sql.append(" ORDER BY A.created_at DESC");
+        // クエリを実行して結果を取得
+        List<CalculationHistoryView> results = toViews(query.getResultList());
         
-        // ページネーション（OFFSETとLIMIT）
-        int offset = page * size;
-        sql.append(" LIMIT ? OFFSET ?");
+        logger.debug("実行SQL: {}", sql);
+        logger.info("検索結果: {}件", results.size());
+        return results;
+    }
+    
+    /**
+     * 動的な条件で、指定した位置の前または後ろの計算履歴の一覧を検索する
+     * 
+     * OFFSETのように読み飛ばす行を数えず、（作成日時, ID）の位置から読み始めるため、
+     * 後ろのページでも取得にかかる時間が変わらない。
+     * エンティティは読み込まず、一覧に表示する列だけを {@link CalculationHistoryView} に詰める。
+     * 
+     * @param user ユーザー（nullの場合は全ユーザー）
+     * @param postalCode 郵便番号（nullの場合は条件に含めない）
+     * @param minAnnualIncome 年収の最小値（nullの場合は条件に含めない）
+     * @param maxAnnualIncome 年収の最大値（nullの場合は条件に含めない）
+     * @param cursor 位置（nullの場合は先頭から）
+     * @param newer trueの場合は位置より新しい履歴、falseの場合は位置より古い履歴
+     * @param limit 取得する最大件数
+     * @return 検索結果のリスト（どちらの場合も作成日時の降順）
+     */
+    @Transactional(readOnly = true)
+    public List<CalculationHistoryView> searchByCursor(User user, String postalCode, 
+                                                   Integer minAnnualIncome, 
+                                                   Integer maxAnnualIncome,
+                                                   CalculationHistoryCursor cursor, boolean newer,
+                                                   int limit) {
+        int conditions = conditionsOf(user, postalCode, minAnnualIncome, maxAnnualIncome);
+        int mode = (cursor != null ? CURSOR_WITH_POSITION : 0) + (newer ? CURSOR_NEWER : 0);
+        String sql = VIEW_CURSOR_SQL[conditions][mode];
         
-        // ネイティブSQLクエリを作成
-        Query query = entityManager.createNativeQuery(sql.toString(), CalculationHistory.class);
+        Query query = createViewQuery(sql);
         
-        // パラメータを設定（位置を明示的に指定）
-        paramIndex = 1;
-        if (user != null) {
-            query.setParameter(paramIndex, user.getId());
-            paramIndex++;
-        }
-        if (postalCode != null && !postalCode.isEmpty()) {
-            query.setParameter(paramIndex, postalCode);
-            paramIndex++;
-        }
-        if (minAnnualIncome != null) {
-            query.setParameter(paramIndex, minAnnualIncome);
-            paramIndex++;
-        }
-        if (maxAnnualIncome != null) {
-            query.setParameter(paramIndex, maxAnnualIncome);
-            paramIndex++;
+        int paramIndex = bindConditions(query, conditions, user, postalCode, minAnnualIncome, maxAnnualIncome);
+        if (cursor != null) {
+            query.setParameter(paramIndex++, cursor.getCreatedAt());
+            query.setParameter(paramIndex++, cursor.getCreatedAt());
+            query.setParameter(paramIndex++, cursor.getCreatedAt());
+            query.setParameter(paramIndex++, cursor.getId());
         }
+        query.setParameter(paramIndex++, limit);
         
-        // LIMITとOFFSETのパラメータを設定
-        query.setParameter(paramIndex++, size);
-        query.setParameter(paramIndex++, offset);
-        
-        // クエリを実行して結果を取得
-        @SuppressWarnings("unchecked")
-        List<CalculationHistory> results = query.getResultList();
+        List<CalculationHistoryView> results = toViews(query.getResultList());
+        if (newer) {
+            Collections.reverse(results);
+        }
         
-        logger.debug("実行SQL: {}", sql.toString());
+        logger.debug("実行SQL: {}", sql);
         logger.info("検索結果: {}件", results.size());
         return results;
     }
@@ -142,6 +234,8 @@ public class CalculationHistoryKensakuRepository {
     /**
      * 検索条件に一致する計算履歴の総件数を取得する
      * 
+     * ユーザーだけで絞り込む場合は、COUNT(*)で数えずにユーザーごとの件数（{@link #countByUser}）を返す。
+     * 
      * @param user ユーザー（nullの場合は全ユーザー）
      * @param postalCode 郵便番号（nullの場合は条件に含めない）
      * @param minAnnualIncome 年収の最小値（nullの場合は条件に含めない）
@@ -152,52 +246,101 @@ public class CalculationHistoryKensakuRepository {
     public long countByConditions(User user, String postalCode, 
                                   Integer minAnnualIncome, 
                                   Integer maxAnnualIncome) {
-        StringBuilder sql = new StringBuilder();
-        sql.append("SELECT COUNT(*) ");
-        sql.append("FROM calculation_histories A ");
-        sql.append("WHERE 1 = 1 ");
+        int conditions = conditionsOf(user, postalCode, minAnnualIncome, maxAnnualIncome);
+        if (conditions == CONDITION_USER) {
+            return countByUser(user);
+        }
         
-        int paramIndex = 1;
+        Query query = entityManager.createNativeQuery(COUNT_SQL[conditions]);
+        bindConditions(query, conditions, user, postalCode, minAnnualIncome, maxAnnualIncome);
         
+        Object result = query.getSingleResult();
+        return ((Number) result).longValue();
+    }
+    
+    /**
+     * ユーザーの計算履歴の件数を取得する
+     * 
+     * 履歴を保存するときに同じトランザクションで加算している件数（users.history_count）を読むため、
+     * 履歴の件数によらず主キーでの1行の読み込みで済む。
+     * 
+     * @param user ユーザー
+     * @return 件数
+     */
+    @Transactional(readOnly = true)
+    public long countByUser(User user) {
+        Object result = entityManager
+            .createNativeQuery("SELECT history_count FROM users WHERE id = ?")
+            .setParameter(1, user.getId())
+            .getSingleResult();
+        return ((Number) result).longValue();
+    }
+    
+    /**
+     * 計算履歴を1行ずつ読むカーソルを開く（監査向けの全件出力）
+     * 
+     * 永続化コンテキストを持たないStatelessSessionで、前方向にだけ進むカーソルとして読むため、
+     * 件数によらず保持するのは読んでいる行だけになる。
+     * ユーザーを指定した場合は作成日時・IDの順、指定しない場合はIDの順に読む（どちらもインデックスの順で、並べ替えない）。
+     * 読み終わったら必ず閉じること。
+     * 
+     * @param user ユーザー（nullの場合は全ユーザー）
+     * @param from この日時以降に作成された履歴（nullの場合は条件に含めない）
+     * @param to この日時より前に作成された履歴（nullの場合は条件に含めない）
+     * @param fetchSize 1回の読み込みで取得する行数の目安
+     * @return {@link #EXPORT_COLUMNS} の順に列を返すカーソル
+     */
+    public ExportScroll openExportScroll(User user, LocalDateTime from, LocalDateTime to, int fetchSize) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT ");
+        for (int i = 0; i < EXPORT_COLUMNS.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("A.").append(EXPORT_COLUMNS.get(i));
+        }
+        sql.append(" FROM calculation_histories A WHERE 1 = 1 ");
         if (user != null) {
             sql.append(" AND A.user_id = ?");
-            paramIndex++;
-        }
-        if (postalCode != null && !postalCode.isEmpty()) {
-            sql.append(" AND A.postal_code = ?");
-            paramIndex++;
         }
-        if (minAnnualIncome != null) {
-            sql.append(" AND A.annual_income >= ?");
-            paramIndex++;
+        if (from != null) {
+            sql.append(" AND A.created_at >= ?");
         }
-        if (maxAnnualIncome != null) {
-            sql.append(" AND A.annual_income <= ?");
-            paramIndex++;
+        if (to != null) {
+            sql.append(" AND A.created_at < ?");
         }
+        // user_idの並び順はインデックス（V1__calculation_history_indexes.sql）に合わせる
+        sql.append(user != null ? " ORDER BY A.user_id DESC, A.created_at, A.id" : " ORDER BY A.id");
         
-        Query query = entityManager.createNativeQuery(sql.toString());
-        
-        paramIndex = 1;
-        if (user != null) {
-            query.setParameter(paramIndex, user.getId());
-            paramIndex++;
-        }
-        if (postalCode != null && !postalCode.isEmpty()) {
-            query.setParameter(paramIndex, postalCode);
-            paramIndex++;
-        }
-        if (minAnnualIncome != null) {
-            query.setParameter(paramIndex, minAnnualIncome);
-            paramIndex++;
-        }
-        if (maxAnnualIncome != null) {
-            query.setParameter(paramIndex, maxAnnualIncome);
-            paramIndex++;
+        StatelessSession session = entityManagerFactory.unwrap(SessionFactory.class).openStatelessSession();
+        try {
+            // 読み終わるまで同じ接続を使うため、トランザクションを開始しておく
+            Transaction transaction = session.beginTransaction();
+            session.doWork(connection -> {
+                connection.setReadOnly(true);
+                setLazyQueryExecution(connection, true);
+            });
+            
+            NativeQuery<?> query = session.createNativeQuery(sql.toString());
+            for (int i = 0; i < EXPORT_COLUMNS.size(); i++) {
+                query.addScalar(EXPORT_COLUMNS.get(i), EXPORT_COLUMN_TYPES[i]);
+            }
+            int paramIndex = 1;
+            if (user != null) {
+                query.setParameter(paramIndex++, user.getId());
+            }
+            if (from != null) {
+                query.setParameter(paramIndex++, from);
+            }
+            if (to != null) {
+                query.setParameter(paramIndex++, to);
+            }
+            query.setFetchSize(fetchSize);
+            query.setReadOnly(true);
+            
+            logger.debug("実行SQL: {}", sql);
+            return new ExportScroll(session, transaction, query.scroll(ScrollMode.FORWARD_ONLY));
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
         }
-        
-        Object result = query.getSingleResult();
-        return ((Number) result).longValue();
     }
     
     /**
@@ -213,6 +356,7 @@ public class CalculationHistoryKensakuRepository {
             // 個人情報を含む詳細はログに出力しない（プライバシー保護）
             logger.debug("計算履歴を新規作成");
             entityManager.persist(history);
+            addHistoryCount(history.getUser().getId(), 1);
             logger.info("計算履歴を新規作成しました");
             return history;
         } else {
@@ -224,5 +368,335 @@ public class CalculationHistoryKensakuRepository {
             return updated;
         }
     }
+    
+    /**
+     * 計算履歴をまとめて新規作成する（1トランザクションで、ユーザーごとの件数も加算する）
+     * 
+     * @param histories 保存する計算履歴
+     */
+    @Transactional
+    public void saveAll(List<CalculationHistory> histories) {
+        int count = 0;
+        // ユーザーごとの件数（ロックの順序をそろえるためID順）
+        Map<Long, Long> countsByUser = new TreeMap<>();
+        for (CalculationHistory history : histories) {
+            entityManager.persist(history);
+            countsByUser.merge(history.getUser().getId(), 1L, Long::sum);
+            // バッチサイズごとにまとめてINSERTし、永続化コンテキストに溜め込まない
+            if (++count % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        for (Map.Entry<Long, Long> entry : countsByUser.entrySet()) {
+            addHistoryCount(entry.getKey(), entry.getValue());
+        }
+        logger.debug("計算履歴をまとめて新規作成しました - 件数: {}件", histories.size());
+    }
+    
+    /**
+     * IDのシーケンスを保存済みの最大IDより後ろに合わせる
+     * 
+     * IDENTITYで採番していた既存のテーブルでは、シーケンスが1から始まり既存のIDと重複するため、
+     * 計算履歴を書き込み始める前に1度だけ呼び出す。
+     */
+    @Transactional
+    public void alignIdSequence() {
+        Number maxId = (Number) entityManager
+            .createNativeQuery("SELECT MAX(id) FROM calculation_histories")
+            .getSingleResult();
+        if (maxId == null) {
+            return;
+        }
+        // シーケンスの値は払い出すIDの範囲の末尾になるため、払い出す数だけ先に進める
+        long restartWith = maxId.longValue() + CalculationHistory.ID_ALLOCATION_SIZE;
+        entityManager
+            .createNativeQuery("ALTER SEQUENCE " + CalculationHistory.ID_SEQUENCE_NAME + " RESTART WITH " + restartWith)
+            .executeUpdate();
+        logger.info("計算履歴のIDシーケンスを合わせました - 最大ID: {}", maxId);
+    }
+    
+    /**
+     * H2の遅延実行（LAZY_QUERY_EXECUTION）を切り替える
+     * 
+     * H2は通常、結果をすべて作ってから最初の行を返すため、全件出力の間だけ読み進めた分だけ結果を作らせる。
+     * 接続はプールに戻って使い回されるため、読み終わったら必ず元に戻す。
+     */
+    private static void setLazyQueryExecution(Connection connection, boolean lazy) throws SQLException {
+        if (!"H2".equals(connection.getMetaData().getDatabaseProductName())) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LAZY_QUERY_EXECUTION " + (lazy ? "TRUE" : "FALSE"));
+        }
+    }
+    
+    /**
+     * ユーザーの計算履歴の件数に加算する（呼び出し元のトランザクションで更新する）
+     */
+    private void addHistoryCount(Long userId, long delta) {
+        entityManager
+            .createNativeQuery("UPDATE users SET history_count = history_count + ? WHERE id = ?")
+            .setParameter(1, delta)
+            .setParameter(2, userId)
+            .executeUpdate();
+    }
+    
+    private static void appendSelect(StringBuilder sql) {
+        sql.append("SELECT ");
+        
+        sql.append("A.id, ");        
+        sql.append("A.user_id, ");
+        sql.append("A.postal_code, ");
+        sql.append("A.prefecture_name, ");
+        sql.append("A.annual_income, ");
+        sql.append("A.monthly_rent, ");  
+        sql.append("A.monthly_utilities, ");  
+        sql.append("A.monthly_food, ");  
+        sql.append("A.monthly_communication, ");  
+        sql.append("A.monthly_others, ");  
+        sql.append("A.monthly_total, ");  
+        sql.append("A.annual_total, ");  
+        sql.append("A.rule_version, ");  
+        sql.append("A.created_at "); 
+        
+        sql.append("FROM calculation_histories A ");
+    }
+    
+    private static void appendViewSelect(StringBuilder sql) {
+        sql.append("SELECT ");
+        
+        sql.append("A.id, ");
+        sql.append("A.postal_code, ");
+        sql.append("A.prefecture_name, ");
+        sql.append("A.annual_income, ");
+        sql.append("A.monthly_total, ");
+        sql.append("A.annual_total, ");
+        sql.append("A.created_at ");
+        
+        sql.append("FROM calculation_histories A ");
+    }
+    
+    /**
+     * 指定された検索条件の組み合わせを求める
+     * 
+     * @return 指定された条件のビットの和
+     */
+    private static int conditionsOf(User user, String postalCode,
+                                    Integer minAnnualIncome, Integer maxAnnualIncome) {
+        int conditions = 0;
+        if (user != null) {
+            conditions |= CONDITION_USER;
+        }
+        if (postalCode != null && !postalCode.isEmpty()) {
+            conditions |= CONDITION_POSTAL_CODE;
+        }
+        if (minAnnualIncome != null) {
+            conditions |= CONDITION_MIN_ANNUAL_INCOME;
+        }
+        if (maxAnnualIncome != null) {
+            conditions |= CONDITION_MAX_ANNUAL_INCOME;
+        }
+        return conditions;
+    }
+    
+    /**
+     * 一覧の列を読むクエリを作成する
+     * 
+     * 列の型を指定しておき、結果セットの情報から型を調べずに値を読む。
+     */
+    private Query createViewQuery(String sql) {
+        NativeQuery<?> query = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class);
+        return query
+            .addScalar("id", StandardBasicTypes.LONG)
+            .addScalar("postal_code", StandardBasicTypes.STRING)
+            .addScalar("prefecture_name", StandardBasicTypes.STRING)
+            .addScalar("annual_income", StandardBasicTypes.INTEGER)
+            .addScalar("monthly_total", StandardBasicTypes.INTEGER)
+            .addScalar("annual_total", StandardBasicTypes.INTEGER)
+            .addScalar("created_at", LocalDateTimeType.INSTANCE);
+    }
+    
+    /**
+     * 一覧の列（createViewQueryで指定した順）を一覧の1行に変換する
+     */
+    private static List<CalculationHistoryView> toViews(List<?> rows) {
+        List<CalculationHistoryView> views = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            Object[] columns = (Object[]) row;
+            views.add(new CalculationHistoryView(
+                (Long) columns[0],
+                (String) columns[1],
+                (String) columns[2],
+                (Integer) columns[3],
+                (Integer) columns[4],
+                (Integer) columns[5],
+                (LocalDateTime) columns[6]));
+        }
+        return views;
+    }
+    
+    /**
+     * OFFSETとLIMITでページを切り出して検索するSQL文を組み立てる
+     * 
+     * @param view trueの場合は一覧の列だけ、falseの場合はエンティティのすべての列を読む
+     */
+    private static String buildOffsetSql(int conditions, boolean view) {
+        StringBuilder sql = new StringBuilder();
+        if (view) {
+            appendViewSelect(sql);
+        } else {
+            appendSelect(sql);
+        }
+        appendConditions(sql, conditions);
+        
+        // 作成日時の降順でソート（同じ日時の場合はIDの降順）
+        appendOrderBy(sql, conditions, "DESC");
+        sql.append(" LIMIT ? OFFSET ?");
+        return sql.toString();
+    }
+    
+    /**
+     * 位置を指定して一覧を検索するSQL文を組み立てる
+     */
+    private static String buildCursorSql(int conditions, int mode) {
+        boolean newer = (mode & CURSOR_NEWER) != 0;
+        StringBuilder sql = new StringBuilder();
+        appendViewSelect(sql);
+        appendConditions(sql, conditions);
+        
+        if ((mode & CURSOR_WITH_POSITION) != 0) {
+            // 位置より古い（新しい）履歴
+            // 先頭の条件は後ろの条件に含まれるが、インデックスを位置から読み始めるために付ける
+            String comparison = newer ? ">" : "<";
+            sql.append(" AND A.created_at ").append(comparison).append("= ?");
+            sql.append(" AND (A.created_at ").append(comparison).append(" ?");
+            sql.append(" OR (A.created_at = ? AND A.id ").append(comparison).append(" ?))");
+        }
+        
+        // 位置から近い順に読む（新しい履歴を読む場合は昇順に読んで後で並べ替える）
+        appendOrderBy(sql, conditions, newer ? "ASC" : "DESC");
+        sql.append(" LIMIT ?");
+        return sql.toString();
+    }
+    
+    /**
+     * 検索条件をWHERE句として追加する（パラメータはbindConditionsで同じ順に設定する）
+     */
+    private static void appendConditions(StringBuilder sql, int conditions) {
+        sql.append("WHERE 1 = 1 ");  //後続がANDでも問題ない
+        
+        // ユーザーIDで絞り込み
+        if ((conditions & CONDITION_USER) != 0) {
+            sql.append(" AND A.user_id = ?");
+        }
+        
+        // 郵便番号で絞り込み
+        if ((conditions & CONDITION_POSTAL_CODE) != 0) {
+            sql.append(" AND A.postal_code = ?");
+        }
+        
+        // 年収の最小値で絞り込み
+        if ((conditions & CONDITION_MIN_ANNUAL_INCOME) != 0) {
+            sql.append(" AND A.annual_income >= ?");
+        }
+        
+        // 年収の最大値で絞り込み
+        if ((conditions & CONDITION_MAX_ANNUAL_INCOME) != 0) {
+            sql.append(" AND A.annual_income <= ?");
+        }
+    }
+    
+    /**
+     * 作成日時・IDの順に並べるORDER BY句を追加する
+     * 
+     * 一致で絞り込む列を先頭に付ける（値は1つなので順序は変わらない）。
+     * H2は並べ替えの列がインデックスの先頭の列から一致する場合だけ、並べ替えずにインデックスの順に読む。
+     * user_idの並び順はインデックス（V1__calculation_history_indexes.sql）に合わせて降順にする。
+     */
+    private static void appendOrderBy(StringBuilder sql, int conditions, String order) {
+        sql.append(" ORDER BY ");
+        if ((conditions & CONDITION_USER) != 0) {
+            sql.append("A.user_id DESC, ");
+        } else if ((conditions & CONDITION_POSTAL_CODE) != 0) {
+            sql.append("A.postal_code, ");
+        }
+        sql.append("A.created_at ").append(order).append(", A.id ").append(order);
+    }
+    
+    /**
+     * 検索条件のパラメータを設定する
+     * 
+     * @return 次に設定するパラメータの位置
+     */
+    private static int bindConditions(Query query, int conditions, User user, String postalCode,
+                                      Integer minAnnualIncome, Integer maxAnnualIncome) {
+        int paramIndex = 1;
+        if ((conditions & CONDITION_USER) != 0) {
+            query.setParameter(paramIndex, user.getId());
+            paramIndex++;
+        }
+        if ((conditions & CONDITION_POSTAL_CODE) != 0) {
+            query.setParameter(paramIndex, postalCode);
+            paramIndex++;
+        }
+        if ((conditions & CONDITION_MIN_ANNUAL_INCOME) != 0) {
+            query.setParameter(paramIndex, minAnnualIncome);
+            paramIndex++;
+        }
+        if ((conditions & CONDITION_MAX_ANNUAL_INCOME) != 0) {
+            query.setParameter(paramIndex, maxAnnualIncome);
+            paramIndex++;
+        }
+        return paramIndex;
+    }
+    
+    /**
+     * 全件出力で計算履歴を1行ずつ読むカーソル
+     * 
+     * 閉じると、接続の設定を元に戻してからセッションを閉じる。
+     */
+    public static final class ExportScroll implements Closeable {
+        
+        private final StatelessSession session;
+        private final Transaction transaction;
+        private final ScrollableResults results;
+        
+        ExportScroll(StatelessSession session, Transaction transaction, ScrollableResults results) {
+            this.session = session;
+            this.transaction = transaction;
+            this.results = results;
+        }
+        
+        /**
+         * 次の行に進む
+         * 
+         * @return 次の行がない場合はfalse
+         */
+        public boolean next() {
+            return results.next();
+        }
+        
+        /**
+         * 現在の行の列を取得する（{@link #EXPORT_COLUMNS} の順）
+         */
+        public Object[] get() {
+            return results.get();
+        }
+        
+        @Override
+        public void close() {
+            try {
+                results.close();
+                session.doWork(connection -> {
+                    setLazyQueryExecution(connection, false);
+                    connection.setReadOnly(false);
+                });
+                // 読み取りだけなので確定するものはない
+                transaction.rollback();
+            } finally {
+                session.close();
+            }
+        }
+    }
 }
-
@@ -0,0 +1,17 @@
+package com.example.authapp.repository;
+
+import com.example.authapp.entity.CalculationRuleSet;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CalculationRuleSetRepository extends JpaRepository<CalculationRuleSet, Long> {
+    Optional<CalculationRuleSet> findByVersion(Integer version);
+    Optional<CalculationRuleSet> findFirstByActiveTrueOrderByVersionDesc();
+    Optional<CalculationRuleSet> findFirstByOrderByVersionDesc();
+    List<CalculationRuleSet> findAllByOrderByVersionDesc();
+    List<CalculationRuleSet> findByActiveTrue();
+}
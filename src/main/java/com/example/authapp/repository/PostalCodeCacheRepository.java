@@ -0,0 +1,75 @@
+package com.example.authapp.repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.authapp.entity.PostalCodeCacheEntry;
+
+/**
+ * 郵便番号の永続キャッシュ（postal_code_cache）へのアクセス
+ * 
+ * 起動時の一括読み込みと、まとめて書き込むバッチ更新だけを行うため、
+ * 永続化コンテキストを経由せずJDBCで直接読み書きする。
+ */
+@Repository
+public class PostalCodeCacheRepository {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PostalCodeCacheRepository.class);
+    
+    // 既存の行は上書きする（H2のMERGE構文）
+    private static final String UPSERT_SQL =
+        "MERGE INTO postal_code_cache (postal_code, prefecture_name, resolved_at) KEY (postal_code) VALUES (?, ?, ?)";
+    
+    // 新しいものから件数を絞り込み、古いものから順に返す
+    private static final String SELECT_RECENT_SQL =
+        "SELECT postal_code, prefecture_name, resolved_at FROM ("
+            + "SELECT postal_code, prefecture_name, resolved_at FROM postal_code_cache ORDER BY resolved_at DESC LIMIT ?"
+            + ") recent ORDER BY resolved_at";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    public PostalCodeCacheRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    /**
+     * 新しいものから最大件数分を、古いものから順に読み込む（結果は1行ずつ渡し、リストにはためない）
+     * 
+     * 最後に渡す行が最も新しいため、渡された順にLRUのキャッシュへ入れると、新しいものほど追い出されにくくなる。
+     * 
+     * @param limit 読み込む最大件数
+     * @param consumer 1行ごとの処理
+     */
+    public void findRecent(int limit, Consumer<PostalCodeCacheEntry> consumer) {
+        jdbcTemplate.query(SELECT_RECENT_SQL, rs -> {
+            consumer.accept(new PostalCodeCacheEntry(
+                rs.getString(1),
+                rs.getString(2),
+                rs.getTimestamp(3).toLocalDateTime()
+            ));
+        }, limit);
+    }
+    
+    /**
+     * まとめて登録・更新する（JDBCバッチで1回の往復にまとめる）
+     * 
+     * @param entries 登録する行
+     */
+    public void saveAll(List<PostalCodeCacheEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setString(1, entry.getPostalCode());
+            ps.setString(2, entry.getPrefectureName());
+            ps.setTimestamp(3, Timestamp.valueOf(entry.getResolvedAt()));
+        });
+        logger.debug("郵便番号キャッシュを保存しました - 件数: {}件", entries.size());
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.authapp.repository;
+
+import com.example.authapp.entity.Prefecture;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface PrefectureRepository extends JpaRepository<Prefecture, Long> {
+    Optional<Prefecture> findByCode(String code);
+}
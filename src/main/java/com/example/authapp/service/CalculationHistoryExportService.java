@@ -0,0 +1,201 @@
+package com.example.authapp.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.authapp.entity.User;
+import com.example.authapp.exception.InvalidParameterException;
+import com.example.authapp.repository.CalculationHistoryKensakuRepository;
+import com.example.authapp.repository.CalculationHistoryKensakuRepository.ExportScroll;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 計算履歴の全件出力（監査向け）
+ *
+ * 計算履歴を {@link CalculationHistoryKensakuRepository#openExportScroll} で1行ずつ読みながら、
+ * CSVまたはJSON Lines（1行に1つのJSON）で書き出す。
+ * 保持するのは読んでいる行と書き出し前のバッファだけなので、件数によらずメモリ使用量は一定。
+ */
+@Service
+public class CalculationHistoryExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CalculationHistoryExportService.class);
+
+    /**
+     * 出力形式
+     */
+    public enum Format {
+        CSV("text/csv;charset=UTF-8", "csv"),
+        JSONL("application/x-ndjson;charset=UTF-8", "jsonl");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        /**
+         * リクエストで指定された出力形式（csv / jsonl）を読み込む
+         *
+         * @throws InvalidParameterException どちらでもない場合
+         */
+        public static Format of(String value) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new InvalidParameterException("出力形式はcsvまたはjsonlで指定してください");
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private final CalculationHistoryKensakuRepository calculationHistoryRepository;
+
+    private final ObjectMapper objectMapper;
+
+    // 1回の読み込みで取得する行数の目安（この行数ごとに出力先にflushする）
+    private final int fetchSize;
+
+    public CalculationHistoryExportService(CalculationHistoryKensakuRepository calculationHistoryRepository,
+                                           ObjectMapper objectMapper,
+                                           @Value("${living-cost.history.export.fetch-size:1000}") int fetchSize) {
+        this.calculationHistoryRepository = calculationHistoryRepository;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * 出力する期間を確認する（出力を始める前に呼び出す）
+     *
+     * @throws InvalidParameterException 開始日が終了日より後の場合
+     */
+    public void checkRange(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new InvalidParameterException("開始日は終了日以前の日付を指定してください");
+        }
+    }
+
+    /**
+     * 計算履歴を読みながら出力先に書き出す
+     *
+     * @param user ユーザー（nullの場合は全ユーザー）
+     * @param from この日以降に作成された履歴（nullの場合は条件に含めない）
+     * @param to この日までに作成された履歴（nullの場合は条件に含めない）
+     * @param format 出力形式
+     * @param outputStream 出力先（fetchSizeの行数ごとにflushする）
+     * @return 出力した行数
+     * @throws IOException 書き出しに失敗した場合（クライアントの切断を含む）
+     */
+    public long export(User user, LocalDate from, LocalDate to, Format format,
+                       OutputStream outputStream) throws IOException {
+        checkRange(from, to);
+        long startNanos = System.nanoTime();
+        LocalDateTime fromTime = from != null ? from.atStartOfDay() : null;
+        LocalDateTime toTime = to != null ? to.plusDays(1).atStartOfDay() : null;
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        long rows;
+        try (ExportScroll scroll = calculationHistoryRepository.openExportScroll(user, fromTime, toTime, fetchSize)) {
+            rows = format == Format.CSV ? writeCsv(scroll, writer) : writeJsonLines(scroll, writer);
+            writer.flush();
+        } catch (IOException e) {
+            // クライアントの切断など（読み込み中のカーソルは閉じている）
+            logger.warn("計算履歴の全件出力を中断しました - 形式: {}, 処理時間: {}ms, 理由: {}",
+                        format, (System.nanoTime() - startNanos) / 1000000, e.getMessage());
+            throw e;
+        }
+
+        logger.info("計算履歴の全件出力完了 - 形式: {}, 件数: {}件, 処理時間: {}ms",
+                    format, rows, (System.nanoTime() - startNanos) / 1000000);
+        return rows;
+    }
+
+    private long writeCsv(ExportScroll scroll, Writer writer) throws IOException {
+        List<String> columns = CalculationHistoryKensakuRepository.EXPORT_COLUMNS;
+        writer.write(String.join(",", columns));
+        writer.write('\n');
+
+        // 1行分の出力（行をまたいで使い回す）
+        StringBuilder line = new StringBuilder(256);
+        long rows = 0;
+        while (scroll.next()) {
+            Object[] values = scroll.get();
+            line.setLength(0);
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                Object value = values[i];
+                if (value instanceof String) {
+                    CsvFields.appendField(line, (String) value);
+                } else if (value != null) {
+                    line.append(value);
+                }
+            }
+            line.append('\n');
+            writer.append(line);
+            if (++rows % fetchSize == 0) {
+                writer.flush();
+            }
+        }
+        return rows;
+    }
+
+    private long writeJsonLines(ExportScroll scroll, Writer writer) throws IOException {
+        List<String> columns = CalculationHistoryKensakuRepository.EXPORT_COLUMNS;
+        // 出力先は呼び出し元が閉じる
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        long rows = 0;
+        while (scroll.next()) {
+            Object[] values = scroll.get();
+            generator.writeStartObject();
+            for (int i = 0; i < values.length; i++) {
+                Object value = values[i];
+                generator.writeFieldName(columns.get(i));
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof Long) {
+                    generator.writeNumber((Long) value);
+                } else if (value instanceof Integer) {
+                    generator.writeNumber((Integer) value);
+                } else {
+                    // 文字列と作成日時（ISO-8601形式）
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            if (++rows % fetchSize == 0) {
+                generator.flush();
+            }
+        }
+        generator.close();
+        return rows;
+    }
+}
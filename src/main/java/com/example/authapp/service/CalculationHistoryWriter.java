@@ -0,0 +1,574 @@
+package com.example.authapp.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import com.example.authapp.entity.CalculationHistory;
+import com.example.authapp.entity.User;
+import com.example.authapp.repository.CalculationHistoryKensakuRepository;
+import com.example.authapp.repository.UserRepository;
+
+/**
+ * 計算履歴の非同期書き込み
+ *
+ * 計算履歴はキューにためておき、バックグラウンドでまとめて calculation_histories に書き込む（ライトビハインド）。
+ * リクエストは書き込みの完了を待たないため、計算直後の履歴一覧には最大で書き込み間隔分遅れて表示される。
+ *
+ * キューが満杯の場合の動作は living-cost.history.writer.backpressure で選ぶ。
+ * <ul>
+ *   <li>CALLER_RUNS: 呼び出し元のスレッドでその場で書き込む（既定、履歴を失わない）</li>
+ *   <li>BLOCK: 空きができるまで一定時間待ち、待ちきれない場合は捨てる</li>
+ *   <li>DROP: すぐに捨てる</li>
+ * </ul>
+ * 書き込みに失敗した履歴は次回以降の書き込みで再試行し、一定回数失敗した場合は保存しない（失敗件数に数える）。
+ * 停止時には書き込み待ちの履歴をすべて書き込む。
+ * living-cost.history.writer.spill-file を指定した場合は、キューに入れるときに追記専用のファイルにも書き、
+ * 書き込み待ちがなくなったら空にする。異常終了で書き込めなかった履歴は、次回の起動時にこのファイルから書き込む。
+ * 退避ファイルの各行には通し番号を付け、書き込めたらどの番号まで書き込んだかを追記するため、
+ * 書き込み済みの履歴は起動時に書き込み直さない（DBに確定してから追記するまでの間に終了した場合だけ重複しうる）。
+ */
+@Component
+@DependsOn({"entityManagerFactory", "schemaMigrator"}) // テーブルとユーザーごとの件数の列を作成した後に書き込む
+public class CalculationHistoryWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CalculationHistoryWriter.class);
+
+    /**
+     * キューが満杯の場合の動作
+     */
+    public enum Backpressure {
+        CALLER_RUNS, BLOCK, DROP
+    }
+
+    // 退避ファイルの列数（先頭の通し番号を含む）
+    private static final int SPILL_COLUMNS = 14;
+
+    // 通し番号のない形式の退避ファイルの列数（常に書き込み直す）
+    private static final int LEGACY_SPILL_COLUMNS = 13;
+
+    // どの通し番号まで書き込んだかを表す行の接頭辞
+    private static final String SAVED_MARK = "#saved\t";
+
+    // 書き込みに失敗した履歴を書き込む最大回数
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final CalculationHistoryKensakuRepository calculationHistoryRepository;
+    private final UserRepository userRepository;
+
+    // 書き込み待ちのキュー
+    private final BlockingQueue<CalculationHistory> pending;
+
+    // 1回の書き込みでまとめる最大件数
+    private final int batchSize;
+
+    // 書き込み間隔（ミリ秒）
+    private final long flushIntervalMillis;
+
+    private final Backpressure backpressure;
+
+    // BLOCKの場合に空きを待つ最大時間（ミリ秒）
+    private final long blockTimeoutMillis;
+
+    // 退避ファイル（nullの場合は使わない）
+    private final Path spillFile;
+    private final Object spillLock = new Object();
+    private BufferedWriter spillWriter;
+
+    // 退避ファイルに最後に書いた履歴の通し番号（spillLockの中でだけ読み書きする）
+    private long spillSequence;
+
+    // キューから取り出した件数（flushの中でだけ読み書きする）
+    // キューには退避ファイルに書いた順に入るため、取り出した件数が書き込み済みの通し番号になる
+    private long drainedCount;
+
+    // 書き込みに失敗し、次回の書き込みで再試行する履歴（flushの中でだけ読み書きする）
+    private final List<CalculationHistory> retrying = new ArrayList<>();
+    private int attempts;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "history-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 運用向けの統計値
+    private final LongAdder written = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public CalculationHistoryWriter(CalculationHistoryKensakuRepository calculationHistoryRepository,
+                                    UserRepository userRepository,
+                                    @Value("${living-cost.history.writer.queue-capacity:10000}") int queueCapacity,
+                                    @Value("${living-cost.history.writer.batch-size:500}") int batchSize,
+                                    @Value("${living-cost.history.writer.flush-interval-millis:1000}") long flushIntervalMillis,
+                                    @Value("${living-cost.history.writer.backpressure:CALLER_RUNS}") Backpressure backpressure,
+                                    @Value("${living-cost.history.writer.block-timeout-millis:5000}") long blockTimeoutMillis,
+                                    @Value("${living-cost.history.writer.spill-file:}") String spillFile) {
+        this.calculationHistoryRepository = calculationHistoryRepository;
+        this.userRepository = userRepository;
+        this.pending = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.backpressure = backpressure;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+        this.spillFile = spillFile == null || spillFile.isEmpty() ? null : Paths.get(spillFile);
+    }
+
+    /**
+     * 起動時にIDのシーケンスを合わせて退避ファイルに残った履歴を書き込み、定期的な書き込みを開始する
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        calculationHistoryRepository.alignIdSequence();
+        if (spillFile != null) {
+            if (spillFile.getParent() != null) {
+                Files.createDirectories(spillFile.getParent());
+            }
+            try {
+                replaySpillFile();
+            } catch (IOException | RuntimeException e) {
+                // 書き込めなかった履歴は別名で残し、起動は続ける
+                closeSpillWriter();
+                Path failedFile = spillFile.resolveSibling(spillFile.getFileName() + ".failed-" + System.currentTimeMillis());
+                Files.move(spillFile, failedFile);
+                logger.error("退避ファイルの計算履歴を書き込めませんでした。{} に移動しました: {}", failedFile, e.getMessage());
+            }
+            spillWriter = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止時に書き込み待ちの履歴をすべて書き込む
+     */
+    @PreDestroy
+    public void stop() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        synchronized (spillLock) {
+            closeSpillWriter();
+        }
+    }
+
+    /**
+     * 計算履歴を書き込み待ちにする
+     *
+     * @param history 保存する計算履歴
+     */
+    public void submit(CalculationHistory history) {
+        if (spillFile == null) {
+            if (!pending.offer(history)) {
+                handleFullQueue(history);
+            }
+            return;
+        }
+
+        // 退避ファイルへの追記とキューへの追加を一緒に行い、退避ファイルを空にする処理と競合しないようにする
+        synchronized (spillLock) {
+            if (pending.offer(history)) {
+                appendToSpillFile(history);
+                return;
+            }
+        }
+        handleFullQueue(history);
+    }
+
+    /**
+     * 書き込み待ちの履歴をその場で書き込む
+     *
+     * 保存した直後の履歴を読む場合に呼ぶ（呼ばない場合は最大で書き込み間隔分遅れて読める）。
+     * 書き込みに失敗した場合は、通常の書き込みと同じく次回以降に再試行する。
+     */
+    public void flushPending() {
+        flush();
+    }
+
+    /**
+     * 書き込み待ちの件数
+     */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * 運用向けの統計値を取得する
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("backpressure", backpressure.name());
+        stats.put("spillFile", spillFile != null ? spillFile.toString() : null);
+        stats.put("pending", pending.size());
+        stats.put("written", written.sum());
+        stats.put("callerRuns", callerRuns.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("retrying", retrying.size());
+        stats.put("failed", failed.sum());
+        return stats;
+    }
+
+    private void handleFullQueue(CalculationHistory history) {
+        switch (backpressure) {
+            case CALLER_RUNS:
+                callerRuns.increment();
+                calculationHistoryRepository.save(history);
+                written.increment();
+                return;
+            case BLOCK:
+                try {
+                    if (offerWithTimeout(history)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                break;
+            default:
+                break;
+        }
+        dropped.increment();
+        logger.warn("計算履歴の書き込み待ちが上限に達したため、履歴を保存しませんでした");
+    }
+
+    private boolean offerWithTimeout(CalculationHistory history) throws InterruptedException {
+        if (spillFile == null) {
+            return pending.offer(history, blockTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        // 退避ファイルのロックを持ったまま待たないよう、空きを待ってから追加し直す
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+        while (System.nanoTime() - deadline < 0) {
+            synchronized (spillLock) {
+                if (pending.offer(history)) {
+                    appendToSpillFile(history);
+                    return true;
+                }
+            }
+            Thread.sleep(Math.min(10, blockTimeoutMillis));
+        }
+        return false;
+    }
+
+    /**
+     * 書き込み待ちの履歴を書き込む
+     *
+     * 定期実行のタスクは例外で終了すると以降実行されないため、例外を外に出さない。
+     */
+    private synchronized void flush() {
+        try {
+            // 前回失敗した履歴を先に書き込む（失敗した場合はDBが使えないとみなし、今回は書き込まない）
+            if (!retrying.isEmpty()) {
+                if (!save(retrying)) {
+                    return;
+                }
+                markSaved(drainedCount);
+            }
+            List<CalculationHistory> batch = new ArrayList<>(batchSize);
+            int drained;
+            while ((drained = pending.drainTo(batch, batchSize)) > 0) {
+                drainedCount += drained;
+                if (!save(batch)) {
+                    return;
+                }
+                // 最大回数まで失敗して保存しなかった履歴も含め、ここまでに取り出した履歴は書き込み直さない
+                markSaved(drainedCount);
+                batch.clear();
+            }
+            truncateSpillFileIfDrained();
+        } catch (RuntimeException e) {
+            logger.error("計算履歴の書き込みで予期しないエラーが発生しました: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * まとめて書き込む
+     *
+     * 失敗した場合は再試行する履歴として残し、最大回数に達した場合は保存しない。
+     * （トランザクションの開始に失敗した場合など、DataAccessException以外の例外も同じように扱う）
+     *
+     * @return 書き込めた場合はtrue
+     */
+    private boolean save(List<CalculationHistory> batch) {
+        try {
+            calculationHistoryRepository.saveAll(batch);
+            written.add(batch.size());
+            retrying.clear();
+            attempts = 0;
+            return true;
+        } catch (RuntimeException e) {
+            if (retrying != batch) {
+                retrying.addAll(batch);
+            }
+            attempts++;
+            // 保存できなかったため、採番済みのIDを戻して次回に新規作成し直す
+            for (CalculationHistory history : retrying) {
+                history.setId(null);
+            }
+            if (attempts < MAX_ATTEMPTS) {
+                logger.warn("計算履歴の保存に失敗しました。次回再試行します - 件数: {}件, 回数: {}: {}",
+                            retrying.size(), attempts, e.getMessage());
+            } else {
+                failed.add(retrying.size());
+                logger.error("計算履歴の保存に失敗しました - 件数: {}件: {}", retrying.size(), e.getMessage());
+                retrying.clear();
+                attempts = 0;
+            }
+            return false;
+        }
+    }
+
+    private void appendToSpillFile(CalculationHistory history) {
+        // 書き込みに失敗しても番号は進め、キューの順序と対応させる
+        spillSequence++;
+        try {
+            spillWriter.write(spillSequence + "\t" + toSpillLine(history));
+            spillWriter.newLine();
+            spillWriter.flush();
+        } catch (IOException e) {
+            logger.warn("計算履歴の退避ファイルへの書き込みに失敗しました: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 退避ファイルに、指定した通し番号まで書き込んだことを追記する
+     */
+    private void markSaved(long sequence) {
+        if (spillFile == null) {
+            return;
+        }
+        synchronized (spillLock) {
+            if (spillWriter == null) {
+                return;
+            }
+            try {
+                spillWriter.write(SAVED_MARK + sequence);
+                spillWriter.newLine();
+                spillWriter.flush();
+            } catch (IOException e) {
+                logger.warn("計算履歴の退避ファイルへの書き込みに失敗しました: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 書き込み待ちがなくなり、再試行する履歴もない場合は退避ファイルを空にする
+     */
+    private void truncateSpillFileIfDrained() {
+        if (spillFile == null) {
+            return;
+        }
+        synchronized (spillLock) {
+            if (!retrying.isEmpty() || !pending.isEmpty() || spillWriter == null) {
+                return;
+            }
+            try {
+                closeSpillWriter();
+                spillWriter = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                spillSequence = 0;
+                drainedCount = 0;
+            } catch (IOException e) {
+                logger.warn("計算履歴の退避ファイルを空にできませんでした: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void closeSpillWriter() {
+        if (spillWriter == null) {
+            return;
+        }
+        try {
+            spillWriter.close();
+        } catch (IOException e) {
+            logger.warn("計算履歴の退避ファイルを閉じられませんでした: {}", e.getMessage());
+        }
+        spillWriter = null;
+    }
+
+    /**
+     * 前回の実行で書き込めなかった履歴を退避ファイルから書き込む
+     *
+     * 書き込み済みの通し番号までの履歴は読み飛ばす。
+     * 書き込み直した分も追記しておき、この処理の途中で終了した場合に重複して書き込まないようにする。
+     */
+    private void replaySpillFile() throws IOException {
+        if (!Files.exists(spillFile)) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        long savedSequence = readSavedSequence();
+        spillWriter = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        int replayed = 0;
+        int skipped = 0;
+        long lastSequence = 0;
+        List<CalculationHistory> batch = new ArrayList<>(batchSize);
+        // ユーザーの参照はユーザーごとに1度だけ作る
+        Map<Long, User> users = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(spillFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(SAVED_MARK)) {
+                    continue;
+                }
+                String[] columns = line.split("\t", -1);
+                CalculationHistory history = fromSpillColumns(columns, users);
+                if (history == null) {
+                    continue;
+                }
+                long sequence = columns.length == SPILL_COLUMNS ? Long.parseLong(columns[0]) : 0;
+                if (sequence > 0 && sequence <= savedSequence) {
+                    skipped++;
+                    continue;
+                }
+                batch.add(history);
+                lastSequence = Math.max(lastSequence, sequence);
+                if (batch.size() == batchSize) {
+                    saveReplayed(batch, lastSequence);
+                    replayed += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            saveReplayed(batch, lastSequence);
+            replayed += batch.size();
+        }
+        closeSpillWriter();
+        if (skipped > 0) {
+            logger.info("退避ファイルの書き込み済みの計算履歴を読み飛ばしました - 件数: {}件", skipped);
+        }
+        if (replayed > 0) {
+            logger.info("退避ファイルから計算履歴を書き込みました - 件数: {}件, 処理時間: {}ms",
+                        replayed, (System.nanoTime() - startNanos) / 1000000);
+        }
+    }
+
+    private void saveReplayed(List<CalculationHistory> batch, long lastSequence) throws IOException {
+        calculationHistoryRepository.saveAll(batch);
+        if (lastSequence > 0) {
+            spillWriter.write(SAVED_MARK + lastSequence);
+            spillWriter.newLine();
+            spillWriter.flush();
+        }
+    }
+
+    /**
+     * 退避ファイルに記録された、書き込み済みの通し番号を読む
+     *
+     * @return 書き込み済みの通し番号（記録がない場合は0）
+     */
+    private long readSavedSequence() throws IOException {
+        long savedSequence = 0;
+        try (BufferedReader reader = Files.newBufferedReader(spillFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(SAVED_MARK)) {
+                    try {
+                        savedSequence = Math.max(savedSequence, Long.parseLong(line.substring(SAVED_MARK.length())));
+                    } catch (NumberFormatException e) {
+                        // 書き込みの途中で終了した行
+                    }
+                }
+            }
+        }
+        return savedSequence;
+    }
+
+    private static String toSpillLine(CalculationHistory history) {
+        // タブ区切り、nullは空文字
+        StringBuilder line = new StringBuilder(128);
+        line.append(history.getUser().getId()).append('\t')
+            .append(history.getPostalCode()).append('\t')
+            .append(nullToEmpty(history.getPrefectureName())).append('\t')
+            .append(history.getAnnualIncome()).append('\t')
+            .append(nullToEmpty(history.getMonthlyRent())).append('\t')
+            .append(nullToEmpty(history.getMonthlyUtilities())).append('\t')
+            .append(nullToEmpty(history.getMonthlyFood())).append('\t')
+            .append(nullToEmpty(history.getMonthlyCommunication())).append('\t')
+            .append(nullToEmpty(history.getMonthlyOthers())).append('\t')
+            .append(nullToEmpty(history.getMonthlyTotal())).append('\t')
+            .append(nullToEmpty(history.getAnnualTotal())).append('\t')
+            .append(nullToEmpty(history.getRuleVersion())).append('\t')
+            .append(history.getCreatedAt());
+        return line.toString();
+    }
+
+    /**
+     * 退避ファイルの1行を計算履歴に戻す
+     *
+     * @return 読めない行の場合はnull
+     */
+    private CalculationHistory fromSpillColumns(String[] columns, Map<Long, User> users) {
+        try {
+            if (columns.length == SPILL_COLUMNS) {
+                // 通し番号も読めることを確認する
+                Long.parseLong(columns[0]);
+                return toHistory(columns, 1, users);
+            }
+            if (columns.length == LEGACY_SPILL_COLUMNS) {
+                return toHistory(columns, 0, users);
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            // 下で無視する
+        }
+        // 書き込みの途中で終了した行
+        logger.warn("計算履歴の退避ファイルに読めない行があったため無視します");
+        return null;
+    }
+
+    private CalculationHistory toHistory(String[] columns, int first, Map<Long, User> users) {
+        User user = users.computeIfAbsent(Long.valueOf(columns[first]), userRepository::getReferenceById);
+        CalculationHistory history = new CalculationHistory(user, columns[first + 1], emptyToNull(columns[first + 2]),
+            Integer.valueOf(columns[first + 3]), toInteger(columns[first + 4]), toInteger(columns[first + 5]),
+            toInteger(columns[first + 6]), toInteger(columns[first + 7]), toInteger(columns[first + 8]),
+            toInteger(columns[first + 9]), toInteger(columns[first + 10]));
+        history.setRuleVersion(toInteger(columns[first + 11]));
+        history.setCreatedAt(LocalDateTime.parse(columns[first + 12]));
+        return history;
+    }
+
+    private static String nullToEmpty(Object value) {
+        return value == null ? "" : value.toString();
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Integer toInteger(String value) {
+        return value.isEmpty() ? null : Integer.valueOf(value);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.authapp.service;
+
+import com.example.authapp.dto.LivingCostBreakdown;
+import com.example.authapp.entity.CalculationRuleSet;
+import com.example.authapp.exception.InvalidParameterException;
+
+/**
+ * 生活費計算のルールセットを検証して固定した計算手順（不変）
+ *
+ * ルールセットの読み込み時に1度だけ作り、計算時はフィールドを読むだけでDBにはアクセスしない。
+ * 計算式と丸め（整数の切り捨て）は版によらず同じで、率と固定費だけが版ごとに異なる。
+ */
+public final class CalculationPlan {
+
+    // 1年の月数
+    static final int MONTHS_PER_YEAR = 12;
+
+    // ルールセットが登録されていない場合に使う版（従来の固定値）
+    public static final CalculationPlan DEFAULT = new CalculationPlan(1, 25, 12, 12, 5, 4000);
+
+    private final int version;
+    private final int maxRentRatePercent;
+    private final int utilitiesRatePercent;
+    private final int foodRatePercent;
+    private final int othersRatePercent;
+    private final int monthlyCommunicationFee;
+
+    private CalculationPlan(int version, int maxRentRatePercent, int utilitiesRatePercent,
+                            int foodRatePercent, int othersRatePercent, int monthlyCommunicationFee) {
+        this.version = version;
+        this.maxRentRatePercent = maxRentRatePercent;
+        this.utilitiesRatePercent = utilitiesRatePercent;
+        this.foodRatePercent = foodRatePercent;
+        this.othersRatePercent = othersRatePercent;
+        this.monthlyCommunicationFee = monthlyCommunicationFee;
+    }
+
+    /**
+     * ルールセットを検証して計算手順を作る
+     *
+     * @param ruleSet ルールセット
+     * @return 計算手順
+     * @throws InvalidParameterException 率が0〜100%の範囲外、または固定費が負の場合
+     */
+    public static CalculationPlan compile(CalculationRuleSet ruleSet) {
+        if (ruleSet.getVersion() == null || ruleSet.getVersion() < 1) {
+            throw new InvalidParameterException("ルールセットの版数が不正です: " + ruleSet.getVersion());
+        }
+        return new CalculationPlan(
+            ruleSet.getVersion(),
+            requirePercent("家賃上限率", ruleSet.getMaxRentRatePercent()),
+            requirePercent("光熱費率", ruleSet.getUtilitiesRatePercent()),
+            requirePercent("食費率", ruleSet.getFoodRatePercent()),
+            requirePercent("その他率", ruleSet.getOthersRatePercent()),
+            requireFee("通信費", ruleSet.getMonthlyCommunicationFee()));
+    }
+
+    /**
+     * 平均家賃と年収から生活費の内訳を計算する
+     *
+     * @param averageRent 都道府県の平均家賃
+     * @param annualIncome 年収
+     * @return 内訳
+     */
+    public LivingCostBreakdown calculate(int averageRent, int annualIncome) {
+        // 年収を一か月あたりに計算し、その上限率までを家賃とする
+        int monthlyIncome = annualIncome / MONTHS_PER_YEAR;
+        int monthlyRent = Math.min(averageRent, monthlyIncome * maxRentRatePercent / 100);
+
+        // 光熱費（家賃に対する率）
+        int monthlyUtilities = monthlyRent * utilitiesRatePercent / 100;
+
+        // 食費・その他（年収を一か月あたりに計算した額に対する率）
+        int monthlyFood = monthlyIncome * foodRatePercent / 100;
+        int monthlyOthers = monthlyIncome * othersRatePercent / 100;
+
+        return new LivingCostBreakdown(
+            monthlyRent, monthlyUtilities, monthlyFood, monthlyCommunicationFee, monthlyOthers);
+    }
+
+    /**
+     * ルールセットとして保存する内容に変換する
+     *
+     * @param active 有効な版とするか
+     */
+    public CalculationRuleSet toRuleSet(boolean active) {
+        return new CalculationRuleSet(version, maxRentRatePercent, utilitiesRatePercent,
+            foodRatePercent, othersRatePercent, monthlyCommunicationFee, active);
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public int getMaxRentRatePercent() {
+        return maxRentRatePercent;
+    }
+
+    public int getUtilitiesRatePercent() {
+        return utilitiesRatePercent;
+    }
+
+    public int getFoodRatePercent() {
+        return foodRatePercent;
+    }
+
+    public int getOthersRatePercent() {
+        return othersRatePercent;
+    }
+
+    public int getMonthlyCommunicationFee() {
+        return monthlyCommunicationFee;
+    }
+
+    private static int requirePercent(String name, Integer value) {
+        if (value == null || value < 0 || value > 100) {
+            throw new InvalidParameterException(name + "は0〜100%で指定してください: " + value);
+        }
+        return value;
+    }
+
+    private static int requireFee(String name, Integer value) {
+        if (value == null || value < 0) {
+            throw new InvalidParameterException(name + "は0以上で指定してください: " + value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.authapp.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.example.authapp.entity.CalculationRuleSet;
+import com.example.authapp.exception.InvalidParameterException;
+import com.example.authapp.repository.CalculationRuleSetRepository;
+
+/**
+ * 生活費計算のルールセット（版管理された率・固定費）
+ *
+ * 有効なルールセットを {@link CalculationPlan} に変換して保持し、計算時は参照を読むだけにする。
+ * 版の切り替えは新しい計算手順を作ってから参照を差し替えるため、計算中のリクエストを待たせない
+ * （切り替え前に読んだ計算手順で計算したリクエストは、その版で最後まで計算する）。
+ */
+@Service
+public class CalculationRuleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CalculationRuleService.class);
+
+    private final CalculationRuleSetRepository ruleSetRepository;
+
+    // 現在の計算手順（差し替えはreloadでのみ行う）
+    private volatile CalculationPlan plan = CalculationPlan.DEFAULT;
+
+    public CalculationRuleService(CalculationRuleSetRepository ruleSetRepository) {
+        this.ruleSetRepository = ruleSetRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * 現在の計算手順を取得する
+     */
+    public CalculationPlan current() {
+        return plan;
+    }
+
+    /**
+     * 有効なルールセットを読み込み直して差し替える
+     *
+     * 有効なルールセットがない場合は {@link CalculationPlan#DEFAULT} を使う。
+     *
+     * @return 差し替えた計算手順
+     */
+    public synchronized CalculationPlan reload() {
+        CalculationPlan reloaded = ruleSetRepository.findFirstByActiveTrueOrderByVersionDesc()
+            .map(CalculationPlan::compile)
+            .orElse(CalculationPlan.DEFAULT);
+        plan = reloaded;
+        logger.info("生活費計算のルールセットを読み込みました - 版: {}", reloaded.getVersion());
+        return reloaded;
+    }
+
+    /**
+     * 新しい版のルールセットを登録する
+     *
+     * @param ruleSet 登録する率・固定費（版数は自動で採番する）
+     * @param activate 登録した版を有効にする場合はtrue
+     * @return 登録した版の計算手順
+     */
+    public synchronized CalculationPlan create(CalculationRuleSet ruleSet, boolean activate) {
+        int version = ruleSetRepository.findFirstByOrderByVersionDesc()
+            .map(latest -> latest.getVersion() + 1)
+            .orElse(1);
+        ruleSet.setVersion(version);
+        ruleSet.setActive(false);
+        // 保存する前に検証する
+        CalculationPlan created = CalculationPlan.compile(ruleSet);
+        ruleSetRepository.save(ruleSet);
+        logger.info("生活費計算のルールセットを登録しました - 版: {}", version);
+
+        if (activate) {
+            activate(version);
+        }
+        return created;
+    }
+
+    /**
+     * 指定した版を有効にして計算手順を差し替える
+     *
+     * @param version 版数
+     * @return 差し替えた計算手順
+     */
+    public synchronized CalculationPlan activate(int version) {
+        CalculationRuleSet target = ruleSetRepository.findByVersion(version)
+            .orElseThrow(() -> new InvalidParameterException("ルールセットが見つかりません: " + version));
+        // 検証に失敗する版は有効にしない
+        CalculationPlan.compile(target);
+
+        List<CalculationRuleSet> changed = new ArrayList<>();
+        for (CalculationRuleSet ruleSet : ruleSetRepository.findByActiveTrue()) {
+            if (!ruleSet.getVersion().equals(target.getVersion())) {
+                ruleSet.setActive(false);
+                changed.add(ruleSet);
+            }
+        }
+        target.setActive(true);
+        changed.add(target);
+        ruleSetRepository.saveAll(changed);
+        logger.info("生活費計算のルールセットを有効にしました - 版: {}", version);
+
+        return reload();
+    }
+
+    /**
+     * 登録されているルールセットの一覧（新しい版から順）
+     */
+    public List<CalculationRuleSet> findAll() {
+        return ruleSetRepository.findAllByOrderByVersionDesc();
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.authapp.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 外部API呼び出し用のサーキットブレーカー
+ *
+ * 直近の呼び出し結果（件数ベースのスライディングウィンドウ）から失敗率と低速呼び出し率を計算し、
+ * どちらかがしきい値を超えたらOPENにして一定時間呼び出しを止める。
+ * 待機時間の経過後はHALF_OPENとして少数の呼び出しだけを通し、その結果でCLOSEDに戻すかOPENに戻すかを決める。
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /**
+     * サーキットブレーカーの状態
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    // 結果の種類（ビットで保持）
+    private static final byte OUTCOME_FAILURE = 1;
+    private static final byte OUTCOME_SLOW = 2;
+
+    private final String name;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallDurationNanos;
+    private final long openDurationNanos;
+    private final int halfOpenPermittedCalls;
+
+    // 直近の呼び出し結果（リングバッファ）
+    private final byte[] window;
+    private int windowPosition;
+    private int windowCount;
+    private int failureCount;
+    private int slowCount;
+
+    // 状態（CLOSEDの判定はロックなしで読む）
+    private volatile State state = State.CLOSED;
+    private long openUntilNanos;
+    private int halfOpenIssued;
+    private int halfOpenCompleted;
+
+    // 運用向けの統計値
+    private final LongAdder notPermittedCalls = new LongAdder();
+    private final LongAdder openedCount = new LongAdder();
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls,
+                          int failureRateThreshold, int slowCallRateThreshold,
+                          long slowCallDurationMillis, long openDurationMillis,
+                          int halfOpenPermittedCalls) {
+        this.name = name;
+        this.window = new byte[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDurationNanos = TimeUnit.MILLISECONDS.toNanos(slowCallDurationMillis);
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+        this.halfOpenPermittedCalls = halfOpenPermittedCalls;
+    }
+
+    /**
+     * 呼び出してよいかを判定する
+     *
+     * trueが返った場合は、呼び出し後に必ず {@link #onSuccess(long)}・{@link #onFailure(long)}・
+     * {@link #releasePermission()} のいずれかを呼ぶこと。
+     *
+     * @return 呼び出してよい場合はtrue
+     */
+    public boolean tryAcquirePermission() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openUntilNanos < 0) {
+                    notPermittedCalls.increment();
+                    return false;
+                }
+                transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (halfOpenIssued >= halfOpenPermittedCalls) {
+                    notPermittedCalls.increment();
+                    return false;
+                }
+                halfOpenIssued++;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 呼び出さなかった場合に許可を返す
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenIssued > halfOpenCompleted) {
+            halfOpenIssued--;
+        }
+    }
+
+    /**
+     * 呼び出しが成功した（相手が応答した）ことを記録する
+     *
+     * @param durationNanos 呼び出しにかかった時間
+     */
+    public void onSuccess(long durationNanos) {
+        record(durationNanos >= slowCallDurationNanos ? OUTCOME_SLOW : 0);
+    }
+
+    /**
+     * 呼び出しが失敗したことを記録する
+     *
+     * @param durationNanos 呼び出しにかかった時間
+     */
+    public void onFailure(long durationNanos) {
+        record((byte) (OUTCOME_FAILURE | (durationNanos >= slowCallDurationNanos ? OUTCOME_SLOW : 0)));
+    }
+
+    /**
+     * 現在の状態
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * 運用向けの統計値を取得する
+     */
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        stats.put("state", state.name());
+        stats.put("bufferedCalls", windowCount);
+        stats.put("failureRate", rate(failureCount));
+        stats.put("slowCallRate", rate(slowCount));
+        stats.put("notPermittedCalls", notPermittedCalls.sum());
+        stats.put("openedCount", openedCount.sum());
+        return stats;
+    }
+
+    private synchronized void record(int outcome) {
+        if (state == State.OPEN) {
+            // OPENになる前に開始した呼び出しの結果は捨てる
+            return;
+        }
+
+        // 最も古い結果を取り除いてから追加する
+        if (windowCount == window.length) {
+            byte oldest = window[windowPosition];
+            if ((oldest & OUTCOME_FAILURE) != 0) {
+                failureCount--;
+            }
+            if ((oldest & OUTCOME_SLOW) != 0) {
+                slowCount--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowPosition] = (byte) outcome;
+        windowPosition = (windowPosition + 1) % window.length;
+        if ((outcome & OUTCOME_FAILURE) != 0) {
+            failureCount++;
+        }
+        if ((outcome & OUTCOME_SLOW) != 0) {
+            slowCount++;
+        }
+
+        if (state == State.HALF_OPEN) {
+            halfOpenCompleted++;
+            if ((outcome & (OUTCOME_FAILURE | OUTCOME_SLOW)) != 0) {
+                transitionTo(State.OPEN);
+            } else if (halfOpenCompleted >= halfOpenPermittedCalls) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+
+        if (windowCount >= minimumCalls
+                && (rate(failureCount) >= failureRateThreshold || rate(slowCount) >= slowCallRateThreshold)) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private int rate(int count) {
+        return windowCount == 0 ? 0 : count * 100 / windowCount;
+    }
+
+    private void transitionTo(State next) {
+        State previous = state;
+        if (previous == next) {
+            return;
+        }
+        if (next == State.OPEN) {
+            logger.warn("サーキットブレーカー[{}]: {} -> {} (失敗率: {}%, 低速呼び出し率: {}%)",
+                        name, previous, next, rate(failureCount), rate(slowCount));
+            openUntilNanos = System.nanoTime() + openDurationNanos;
+            openedCount.increment();
+        } else {
+            logger.info("サーキットブレーカー[{}]: {} -> {}", name, previous, next);
+        }
+        if (next != State.HALF_OPEN) {
+            // 新しい状態では直近の結果を数え直す
+            windowPosition = 0;
+            windowCount = 0;
+            failureCount = 0;
+            slowCount = 0;
+        }
+        halfOpenIssued = 0;
+        halfOpenCompleted = 0;
+        state = next;
+    }
+}
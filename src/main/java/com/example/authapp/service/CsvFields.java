@@ -0,0 +1,39 @@
+package com.example.authapp.service;
+
+/**
+ * CSV（RFC 4180）の項目の書き出し
+ * 
+ * 生活費の一括計算と計算履歴の全件出力で同じ規則を使う。
+ */
+public final class CsvFields {
+    
+    private CsvFields() {
+    }
+    
+    /**
+     * CSVの1項目を追加する（区切り文字・引用符・改行を含む場合は引用符で囲む）
+     * 
+     * @param line 追加先
+     * @param value 項目の値（nullの場合は空の項目）
+     * @return 追加先
+     */
+    public static StringBuilder appendField(StringBuilder line, String value) {
+        if (value == null) {
+            return line;
+        }
+        if (!needsQuote(value)) {
+            return line.append(value);
+        }
+        return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+    
+    private static boolean needsQuote(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.authapp.service;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 列形式の生活費一括計算
+ *
+ * 年収の int 列と都道府県コードの byte 列を受け取り、結果を {@link LivingCostColumns} の各列に書き込む。
+ * 行ごとのオブジェクト生成は行わず、件数が多い場合はForkJoinで行範囲を分割して複数コアで計算する。
+ * 計算式と丸めは {@link CalculationPlan#calculate} と同じで、結果は1行ずつ計算した場合と完全に一致する。
+ */
+@Component
+public class LivingCostBatchCalculator {
+
+    // この行数以下になるまで分割する
+    private final int parallelThreshold;
+
+    public LivingCostBatchCalculator(@Value("${living-cost.batch.parallel-threshold:8192}") int parallelThreshold) {
+        this.parallelThreshold = Math.max(1, parallelThreshold);
+    }
+
+    /**
+     * 先頭からcount行分の生活費を計算する
+     *
+     * @param annualIncomes 年収の列
+     * @param prefectureCodes 都道府県コードの列（0は不明）
+     * @param count 計算する行数
+     * @param rentTable 計算に使う平均家賃
+     * @param plan 計算に使うルールセット
+     * @param out 結果の書き込み先
+     */
+    public void calculate(int[] annualIncomes, byte[] prefectureCodes, int count,
+                          PrefectureService.RentTable rentTable, CalculationPlan plan, LivingCostColumns out) {
+        if (count < 0 || count > annualIncomes.length || count > prefectureCodes.length || count > out.capacity()) {
+            throw new IllegalArgumentException("行数が列の大きさを超えています: " + count);
+        }
+        if (count <= parallelThreshold) {
+            calculateRange(annualIncomes, prefectureCodes, rentTable, plan, out, 0, count);
+            return;
+        }
+        ForkJoinPool.commonPool().invoke(
+            new RangeTask(annualIncomes, prefectureCodes, rentTable, plan, out, 0, count, parallelThreshold));
+    }
+
+    /**
+     * [from, to) の行を計算する
+     */
+    static void calculateRange(int[] annualIncomes, byte[] prefectureCodes, PrefectureService.RentTable rentTable,
+                               CalculationPlan plan, LivingCostColumns out, int from, int to) {
+        int maxRentRatePercent = plan.getMaxRentRatePercent();
+        int utilitiesRatePercent = plan.getUtilitiesRatePercent();
+        int foodRatePercent = plan.getFoodRatePercent();
+        int othersRatePercent = plan.getOthersRatePercent();
+        int communication = plan.getMonthlyCommunicationFee();
+
+        int[] monthlyRent = out.getMonthlyRent();
+        int[] monthlyUtilities = out.getMonthlyUtilities();
+        int[] monthlyFood = out.getMonthlyFood();
+        int[] monthlyCommunication = out.getMonthlyCommunication();
+        int[] monthlyOthers = out.getMonthlyOthers();
+        int[] monthlyTotal = out.getMonthlyTotal();
+        int[] annualTotal = out.getAnnualTotal();
+
+        for (int i = from; i < to; i++) {
+            int averageRent = rentTable.rentAt(prefectureCodes[i]);
+            if (averageRent < 0) {
+                monthlyRent[i] = LivingCostColumns.NO_RESULT;
+                monthlyUtilities[i] = LivingCostColumns.NO_RESULT;
+                monthlyFood[i] = LivingCostColumns.NO_RESULT;
+                monthlyCommunication[i] = LivingCostColumns.NO_RESULT;
+                monthlyOthers[i] = LivingCostColumns.NO_RESULT;
+                monthlyTotal[i] = LivingCostColumns.NO_RESULT;
+                annualTotal[i] = LivingCostColumns.NO_RESULT;
+                continue;
+            }
+
+            // CalculationPlan#calculateと同じ整数演算
+            int monthlyIncome = annualIncomes[i] / CalculationPlan.MONTHS_PER_YEAR;
+            int rent = Math.min(averageRent, monthlyIncome * maxRentRatePercent / 100);
+            int utilities = rent * utilitiesRatePercent / 100;
+            int food = monthlyIncome * foodRatePercent / 100;
+            int others = monthlyIncome * othersRatePercent / 100;
+            int total = rent + utilities + food + communication + others;
+
+            monthlyRent[i] = rent;
+            monthlyUtilities[i] = utilities;
+            monthlyFood[i] = food;
+            monthlyCommunication[i] = communication;
+            monthlyOthers[i] = others;
+            monthlyTotal[i] = total;
+            annualTotal[i] = total * 12;
+        }
+    }
+
+    /**
+     * 行範囲を半分ずつに分割して計算するタスク
+     */
+    private static final class RangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] annualIncomes;
+        private final byte[] prefectureCodes;
+        private final transient PrefectureService.RentTable rentTable;
+        private final transient CalculationPlan plan;
+        private final transient LivingCostColumns out;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        RangeTask(int[] annualIncomes, byte[] prefectureCodes, PrefectureService.RentTable rentTable,
+                  CalculationPlan plan, LivingCostColumns out, int from, int to, int threshold) {
+            this.annualIncomes = annualIncomes;
+            this.prefectureCodes = prefectureCodes;
+            this.rentTable = rentTable;
+            this.plan = plan;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                calculateRange(annualIncomes, prefectureCodes, rentTable, plan, out, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(annualIncomes, prefectureCodes, rentTable, plan, out, from, mid, threshold),
+                      new RangeTask(annualIncomes, prefectureCodes, rentTable, plan, out, mid, to, threshold));
+        }
+    }
+}
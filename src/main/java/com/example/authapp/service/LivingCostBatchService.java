@@ -0,0 +1,287 @@
+package com.example.authapp.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.authapp.dto.PostalCodeResolution;
+
+/**
+ * CSVによる生活費の一括計算
+ *
+ * 入力（郵便番号,年収）を一定件数（チャンク）ずつ読み、チャンク内で重複を除いて郵便番号を解決してから
+ * {@link LivingCostBatchCalculator} で列ごとに計算し、結果をチャンクごとに書き出す。
+ * 保持するのは1チャンク分だけなので、件数によらずメモリ使用量は一定。
+ * 一括計算の結果は計算履歴に保存しない。
+ */
+@Service
+public class LivingCostBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LivingCostBatchService.class);
+
+    // 出力CSVの見出し行
+    private static final String OUTPUT_HEADER = "postal_code,annual_income,prefecture,monthly_rent,monthly_utilities,"
+        + "monthly_food,monthly_communication,monthly_others,monthly_total,annual_total,error";
+
+    // 年収の範囲（計算画面の入力チェックと同じ）
+    private static final int MIN_ANNUAL_INCOME = 1;
+    private static final int MAX_ANNUAL_INCOME = 100000000;
+
+    private final PostalCodeService postalCodeService;
+
+    private final PrefectureService prefectureService;
+
+    private final CalculationRuleService calculationRuleService;
+
+    private final LivingCostBatchCalculator livingCostBatchCalculator;
+
+    // 1チャンクの行数
+    private final int chunkSize;
+
+    public LivingCostBatchService(PostalCodeService postalCodeService, PrefectureService prefectureService,
+                                  CalculationRuleService calculationRuleService,
+                                  LivingCostBatchCalculator livingCostBatchCalculator,
+                                  @Value("${living-cost.batch.chunk-size:5000}") int chunkSize) {
+        this.postalCodeService = postalCodeService;
+        this.prefectureService = prefectureService;
+        this.calculationRuleService = calculationRuleService;
+        this.livingCostBatchCalculator = livingCostBatchCalculator;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * CSVを読みながら生活費を計算し、結果をCSVで書き出す
+     *
+     * 入力は1行に「郵便番号,年収」（UTF-8）。1行目が見出し行（{@link #isHeader}）の場合は読み飛ばす。
+     * 不正な行は処理を止めずに、その行のerror列に理由を出力する。
+     *
+     * @param inputStream 入力CSV
+     * @param outputStream 出力先（チャンクごとにflushする）
+     * @return 処理した行数
+     * @throws IOException 読み書きに失敗した場合
+     */
+    public long calculateCsv(InputStream inputStream, OutputStream outputStream) throws IOException {
+        long startNanos = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+
+        writer.write(OUTPUT_HEADER);
+        writer.write('\n');
+
+        // チャンクの入出力（チャンクをまたいで使い回す）
+        Chunk chunk = new Chunk(chunkSize);
+
+        StringBuilder line = new StringBuilder(128);
+        long rows = 0;
+        boolean firstLine = true;
+        String text;
+        int count = 0;
+        while ((text = reader.readLine()) != null) {
+            if (text.trim().isEmpty()) {
+                continue;
+            }
+            if (firstLine) {
+                firstLine = false;
+                if (isHeader(text)) {
+                    continue;
+                }
+            }
+            parseLine(text, count, chunk.postalCodes, chunk.annualIncomes, chunk.errors);
+            count++;
+            if (count == chunkSize) {
+                writeChunk(writer, line, chunk, count);
+                rows += count;
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            writeChunk(writer, line, chunk, count);
+            rows += count;
+        }
+        writer.flush();
+
+        logger.info("生活費一括計算完了 - 件数: {}件, 処理時間: {}ms",
+                    rows, (System.nanoTime() - startNanos) / 1000000);
+        return rows;
+    }
+
+    /**
+     * 1行目が見出し行か判定する
+     *
+     * 郵便番号の列に数字を含まず、年収の列が数値でない場合だけ見出し行とみなす。
+     * それ以外の不正な行は読み飛ばさず、他の行と同じようにerror列に理由を出力する。
+     */
+    private static boolean isHeader(String text) {
+        int comma = text.indexOf(',');
+        String postalCode = unquote(comma < 0 ? text : text.substring(0, comma));
+        for (int i = 0; i < postalCode.length(); i++) {
+            if (Character.isDigit(postalCode.charAt(i))) {
+                return false;
+            }
+        }
+        String income = comma < 0 ? "" : unquote(text.substring(comma + 1));
+        try {
+            Integer.parseInt(income);
+            return false;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * 1行を読み込んでチャンクのposition番目に格納する
+     */
+    private static void parseLine(String text, int position,
+                                     String[] postalCodes, int[] annualIncomes, String[] errors) {
+        int comma = text.indexOf(',');
+        String postalCode = unquote(comma < 0 ? text : text.substring(0, comma)).replace("-", "");
+        String income = comma < 0 ? "" : unquote(text.substring(comma + 1));
+
+        postalCodes[position] = postalCode;
+        annualIncomes[position] = 0;
+        errors[position] = null;
+
+        int annualIncome;
+        try {
+            annualIncome = Integer.parseInt(income);
+        } catch (NumberFormatException e) {
+            errors[position] = "年収が数値ではありません";
+            return;
+        }
+        annualIncomes[position] = annualIncome;
+        if (annualIncome < MIN_ANNUAL_INCOME || annualIncome > MAX_ANNUAL_INCOME) {
+            errors[position] = "年収は1円以上1億円以下で指定してください";
+        }
+    }
+
+    /**
+     * チャンク内の郵便番号を重複を除いて解決し、計算結果を書き出す
+     */
+    private void writeChunk(Writer writer, StringBuilder line, Chunk chunk, int count) throws IOException {
+        String[] postalCodes = chunk.postalCodes;
+        int[] annualIncomes = chunk.annualIncomes;
+        String[] errors = chunk.errors;
+        String[] prefectures = chunk.prefectures;
+        byte[] prefectureCodes = chunk.prefectureCodes;
+
+        Map<String, PostalCodeResolution> resolutions = resolve(postalCodes, errors, count);
+        for (int i = 0; i < count; i++) {
+            prefectures[i] = null;
+            prefectureCodes[i] = 0;
+            if (errors[i] != null) {
+                continue;
+            }
+            PostalCodeResolution resolution = resolutions.get(postalCodes[i]);
+            prefectures[i] = resolution.getPrefecture();
+            if (prefectures[i] == null) {
+                errors[i] = resolution.getError() != null ? resolution.getError() : "都道府県を特定できません";
+            } else {
+                prefectureCodes[i] = (byte) PrefectureCodes.codeOf(prefectures[i]);
+            }
+        }
+
+        // チャンク内では同じ平均家賃・ルールセットを使う
+        LivingCostColumns results = chunk.results;
+        livingCostBatchCalculator.calculate(annualIncomes, prefectureCodes, count,
+            prefectureService.current(), calculationRuleService.current(), results);
+
+        for (int i = 0; i < count; i++) {
+            String error = errors[i];
+            boolean calculated = error == null && results.hasResult(i);
+            if (error == null && !calculated) {
+                error = "平均家賃が登録されていない都道府県です";
+            }
+
+            line.setLength(0);
+            CsvFields.appendField(line, postalCodes[i]).append(',');
+            if (error == null || annualIncomes[i] != 0) {
+                line.append(annualIncomes[i]);
+            }
+            line.append(',');
+            CsvFields.appendField(line, prefectures[i]).append(',');
+            if (calculated) {
+                line.append(results.getMonthlyRent()[i]).append(',')
+                    .append(results.getMonthlyUtilities()[i]).append(',')
+                    .append(results.getMonthlyFood()[i]).append(',')
+                    .append(results.getMonthlyCommunication()[i]).append(',')
+                    .append(results.getMonthlyOthers()[i]).append(',')
+                    .append(results.getMonthlyTotal()[i]).append(',')
+                    .append(results.getAnnualTotal()[i]).append(',');
+            } else {
+                line.append(",,,,,,,");
+            }
+            CsvFields.appendField(line, error).append('\n');
+            writer.append(line);
+        }
+        // 読み込みの途中でも、計算できた分は呼び出し元に送る
+        writer.flush();
+    }
+
+    /**
+     * チャンク内の郵便番号を重複を除いてまとめて解決する
+     *
+     * @return ハイフンを除いた郵便番号ごとの解決結果
+     */
+    private Map<String, PostalCodeResolution> resolve(String[] postalCodes, String[] errors, int count) {
+        Map<String, Boolean> distinct = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            if (errors[i] == null) {
+                distinct.put(postalCodes[i], Boolean.TRUE);
+            }
+        }
+        List<String> codes = new ArrayList<>(distinct.keySet());
+        List<PostalCodeResolution> results = postalCodeService.getPrefectureNames(codes);
+
+        // 結果は重複を除いた郵便番号と同じ順に返る
+        Map<String, PostalCodeResolution> resolutions = new HashMap<>(codes.size() * 2);
+        for (int i = 0; i < codes.size(); i++) {
+            resolutions.put(codes.get(i), results.get(i));
+        }
+        return resolutions;
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1).trim();
+        }
+        return trimmed;
+    }
+
+    /**
+     * 1チャンク分の入出力の列
+     */
+    private static final class Chunk {
+        final String[] postalCodes;
+        final int[] annualIncomes;
+        final String[] errors;
+        final String[] prefectures;
+        final byte[] prefectureCodes;
+        final LivingCostColumns results;
+
+        Chunk(int size) {
+            this.postalCodes = new String[size];
+            this.annualIncomes = new int[size];
+            this.errors = new String[size];
+            this.prefectures = new String[size];
+            this.prefectureCodes = new byte[size];
+            this.results = new LivingCostColumns(size);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.authapp.service;
+
+/**
+ * 一括計算の結果を列ごとの int 配列で保持する
+ *
+ * 行ごとにオブジェクトを作らないため、同じインスタンスを繰り返し使い回せる。
+ * 計算できなかった行（平均家賃が登録されていない都道府県など）は、すべての列が {@link #NO_RESULT} になる。
+ * 配列はコピーせずにそのまま返すので、呼び出し側で書き換えないこと。
+ */
+public final class LivingCostColumns {
+
+    // 計算できなかった行の値
+    public static final int NO_RESULT = -1;
+
+    private final int[] monthlyRent;
+    private final int[] monthlyUtilities;
+    private final int[] monthlyFood;
+    private final int[] monthlyCommunication;
+    private final int[] monthlyOthers;
+    private final int[] monthlyTotal;
+    private final int[] annualTotal;
+
+    /**
+     * @param capacity 保持できる最大行数
+     */
+    public LivingCostColumns(int capacity) {
+        this.monthlyRent = new int[capacity];
+        this.monthlyUtilities = new int[capacity];
+        this.monthlyFood = new int[capacity];
+        this.monthlyCommunication = new int[capacity];
+        this.monthlyOthers = new int[capacity];
+        this.monthlyTotal = new int[capacity];
+        this.annualTotal = new int[capacity];
+    }
+
+    public int capacity() {
+        return monthlyRent.length;
+    }
+
+    /**
+     * 指定した行が計算できたか
+     */
+    public boolean hasResult(int row) {
+        return monthlyRent[row] != NO_RESULT;
+    }
+
+    public int[] getMonthlyRent() {
+        return monthlyRent;
+    }
+
+    public int[] getMonthlyUtilities() {
+        return monthlyUtilities;
+    }
+
+    public int[] getMonthlyFood() {
+        return monthlyFood;
+    }
+
+    public int[] getMonthlyCommunication() {
+        return monthlyCommunication;
+    }
+
+    public int[] getMonthlyOthers() {
+        return monthlyOthers;
+    }
+
+    public int[] getMonthlyTotal() {
+        return monthlyTotal;
+    }
+
+    public int[] getAnnualTotal() {
+        return annualTotal;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.authapp.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.authapp.dto.LivingCostBreakdown;
+import com.example.authapp.dto.LivingCostComparison;
+import com.example.authapp.exception.InvalidParameterException;
+
+/**
+ * 同じ年収での全都道府県の生活費の比較
+ *
+ * 郵便番号は解決せず、平均家賃が登録されている都道府県すべてを {@link LivingCostBatchCalculator} で1度に計算する。
+ * 入力は年収だけで出力は都道府県の数しかないため、年収ごとの結果を上限付きのLRUで保持する。
+ * 保持している結果は計算に使った平均家賃・ルールセットと一緒に持ち、どちらかが差し替えられていれば計算し直す。
+ */
+@Service
+public class LivingCostComparisonService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LivingCostComparisonService.class);
+
+    // 全都道府県のコード列（計算の入力として使い回す、書き換えない）
+    private static final byte[] ALL_PREFECTURE_CODES = new byte[PrefectureCodes.MAX_CODE];
+
+    static {
+        for (int i = 0; i < ALL_PREFECTURE_CODES.length; i++) {
+            ALL_PREFECTURE_CODES[i] = (byte) (i + 1);
+        }
+    }
+
+    private final PrefectureService prefectureService;
+
+    private final CalculationRuleService calculationRuleService;
+
+    private final LivingCostBatchCalculator livingCostBatchCalculator;
+
+    // 保持する最大件数（年収の種類の数）
+    private final int maxSize;
+
+    // アクセス順のLinkedHashMap（getでも順序が変わるため、読み書きともロックで保護する）
+    private final Map<Integer, CachedComparison> cache;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // 運用向けの統計値
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public LivingCostComparisonService(PrefectureService prefectureService,
+                                       CalculationRuleService calculationRuleService,
+                                       LivingCostBatchCalculator livingCostBatchCalculator,
+                                       @Value("${living-cost.comparison.cache-size:1000}") int maxSize) {
+        this.prefectureService = prefectureService;
+        this.calculationRuleService = calculationRuleService;
+        this.livingCostBatchCalculator = livingCostBatchCalculator;
+        this.maxSize = maxSize;
+        this.cache = new LinkedHashMap<Integer, CachedComparison>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CachedComparison> eldest) {
+                return size() > LivingCostComparisonService.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * 年収を全都道府県の平均家賃で計算し、生活費の合計が少ない順に並べる
+     *
+     * @param annualIncome 年収
+     * @return 比較結果（複数の呼び出しで共有する不変のオブジェクト）
+     */
+    public LivingCostComparison compare(int annualIncome) {
+        if (annualIncome < 1 || annualIncome > 100000000) {
+            throw new InvalidParameterException("年収は1円以上1億円以下で指定してください");
+        }
+
+        PrefectureService.RentTable rentTable = prefectureService.current();
+        CalculationPlan plan = calculationRuleService.current();
+
+        lock.lock();
+        try {
+            CachedComparison cached = cache.get(annualIncome);
+            if (cached != null && cached.rentTable == rentTable && cached.plan == plan) {
+                hits.increment();
+                return cached.comparison;
+            }
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+
+        LivingCostComparison comparison = calculate(annualIncome, rentTable, plan);
+        lock.lock();
+        try {
+            cache.put(annualIncome, new CachedComparison(rentTable, plan, comparison));
+        } finally {
+            lock.unlock();
+        }
+        return comparison;
+    }
+
+    /**
+     * 運用向けの統計値を取得する
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            stats.put("size", cache.size());
+        } finally {
+            lock.unlock();
+        }
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        return stats;
+    }
+
+    private LivingCostComparison calculate(int annualIncome, PrefectureService.RentTable rentTable,
+                                           CalculationPlan plan) {
+        int size = ALL_PREFECTURE_CODES.length;
+        int[] annualIncomes = new int[size];
+        Arrays.fill(annualIncomes, annualIncome);
+
+        LivingCostColumns columns = new LivingCostColumns(size);
+        livingCostBatchCalculator.calculate(annualIncomes, ALL_PREFECTURE_CODES, size, rentTable, plan, columns);
+
+        // 生活費の合計が少ない順（同じ場合は都道府県コード順）に並べる
+        List<Integer> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            if (columns.hasResult(i)) {
+                rows.add(i);
+            }
+        }
+        int[] monthlyTotal = columns.getMonthlyTotal();
+        rows.sort((a, b) -> monthlyTotal[a] != monthlyTotal[b]
+            ? Integer.compare(monthlyTotal[a], monthlyTotal[b])
+            : Integer.compare(a, b));
+
+        List<LivingCostComparison.Entry> rankings = new ArrayList<>(rows.size());
+        for (int row : rows) {
+            int code = ALL_PREFECTURE_CODES[row];
+            LivingCostBreakdown breakdown = new LivingCostBreakdown(
+                columns.getMonthlyRent()[row], columns.getMonthlyUtilities()[row], columns.getMonthlyFood()[row],
+                columns.getMonthlyCommunication()[row], columns.getMonthlyOthers()[row]);
+            rankings.add(new LivingCostComparison.Entry(rankings.size() + 1, code, PrefectureCodes.nameOf(code),
+                rentTable.getAverageRent(code), breakdown));
+        }
+        logger.debug("全都道府県の比較を計算しました - 対象: {}件", rankings.size());
+
+        return new LivingCostComparison(annualIncome, plan.getVersion(), Collections.unmodifiableList(rankings));
+    }
+
+    /**
+     * 保持している比較結果と、計算に使った平均家賃・ルールセット
+     */
+    private static final class CachedComparison {
+        final PrefectureService.RentTable rentTable;
+        final CalculationPlan plan;
+        final LivingCostComparison comparison;
+
+        CachedComparison(PrefectureService.RentTable rentTable, CalculationPlan plan, LivingCostComparison comparison) {
+            this.rentTable = rentTable;
+            this.plan = plan;
+            this.comparison = comparison;
+        }
+    }
+}
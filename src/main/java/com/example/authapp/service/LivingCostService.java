@@ -1,19 +1,30 @@
 package com.example.authapp.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.authapp.dto.CalculationHistoryCursor;
+import com.example.authapp.dto.CalculationHistorySlice;
+import com.example.authapp.dto.CalculationHistoryView;
+import com.example.authapp.dto.LivingCostBreakdown;
 import com.example.authapp.dto.LivingCostCalculation;
+import com.example.authapp.dto.LivingCostSweep;
 import com.example.authapp.entity.CalculationHistory;
 import com.example.authapp.entity.User;
+import com.example.authapp.exception.InvalidParameterException;
+import com.example.authapp.exception.PostalCodeNotFoundException;
+import com.example.authapp.exception.RentNotRegisteredException;
 import com.example.authapp.repository.CalculationHistoryKensakuRepository;
 
 @Service
@@ -21,52 +32,51 @@ public class LivingCostService {
 	
 	private static final Logger logger = LoggerFactory.getLogger(LivingCostService.class);
 	
-	private static final int MAX_RENT_RATE_PERCENT = 25; //家賃上限率(%)
-    private static final int MONTHS_PER_YEAR = 12; // 1年の月数
-    private static final int UTILITIES_RATE_PERCENT = 12; // 光熱費率（%）
-    private static final int FOOD_RATE_PERCENT = 12; // 食費率（%）
-    private static final int OTHERS_RATE_PERCENT = 5; // その他率（%）
-    private static final int MONTHLY_COMMUNICATION_FEE = 4000; // 通信費（月額）
-	
 	 @Autowired
 	    private PostalCodeService postalCodeService;
 	 
 	 @Autowired
 	    private CalculationHistoryKensakuRepository calculationHistoryRepository;
 	 
+	 @Autowired
+	    private CalculationHistoryWriter calculationHistoryWriter;
+	 
+	 @Autowired
+	    private PrefectureService prefectureService;
+	 
+	 @Autowired
+	    private CalculationRuleService calculationRuleService;
+	 
+	 @Autowired
+	    private LivingCostBatchCalculator livingCostBatchCalculator;
+	 
+	 // 年収スイープで1回に計算する年収の最大数
+	 @Value("${living-cost.sweep.max-points:1000}")
+	    private int maxSweepPoints;
+	 
 	 public LivingCostCalculation calculate(String postalCode, int annualIncome) {
 	        return calculate(postalCode, annualIncome, null);
 	    }
 	 
-	 @Transactional
 	 public LivingCostCalculation calculate(String postalCode, int annualIncome, User user) {
 	        
 	        // 都道府県を取得
-	        String prefecture = postalCodeService.getPrefectureName(postalCode);
+	        String prefecture = getPrefectureName(postalCode);
 	      
-	        // 平均家賃を取得
-	        int averageRent = PrefectureService.getAverageRent(prefecture);
+	        // 平均家賃を取得（計算の間は同じ参照データを使う）
+	        PrefectureService.RentTable rentTable = prefectureService.current();
+	        int prefectureCode = PrefectureCodes.codeOf(prefecture);
+	        Integer averageRent = rentTable.getAverageRent(prefectureCode);
+	        if (averageRent == null) {
+	            throw new RentNotRegisteredException(prefecture);
+	        }
 	        
-	        // 年収の25%を上限とする
-	        int maxRent = annualIncome / MONTHS_PER_YEAR * MAX_RENT_RATE_PERCENT /100; //収入を一か月あたりに計算、その25％
-	        int monthlyRent = Math.min(averageRent, maxRent);
-	      
-	        // 光熱費（家賃の12%）
-	        int monthlyUtilities = (int)(monthlyRent * UTILITIES_RATE_PERCENT / 100);
-	      
-	        // 食費（年収の12%を12で割る）
-	        int monthlyFood = annualIncome / MONTHS_PER_YEAR * FOOD_RATE_PERCENT / 100;
-	      
-	        // 通信費（固定）
-	        int monthlyCommunication = MONTHLY_COMMUNICATION_FEE;
-	      
-	        // その他（年収の5%を12で割る）
-	        int monthlyOthers = annualIncome / MONTHS_PER_YEAR * OTHERS_RATE_PERCENT / 100;
-	      
-	        LivingCostCalculation calculation = new LivingCostCalculation(
-	            postalCode, prefecture, annualIncome,
-	            monthlyRent, monthlyUtilities, monthlyFood, monthlyCommunication, monthlyOthers
-	        );
+	        // 計算の間は同じ版のルールセットを使う
+	        CalculationPlan plan = calculationRuleService.current();
+	        
+	        // 整数の乗除算だけのため、結果は保持せず毎回計算する
+	        LivingCostBreakdown breakdown = plan.calculate(averageRent, annualIncome);
+	        LivingCostCalculation calculation = breakdown.toCalculation(postalCode, prefecture, annualIncome);
 	        
 	        // 個人情報を含む計算結果はログに出力しない（プライバシー保護）
 	        logger.info("生活費計算完了");
@@ -88,16 +98,87 @@ public class LivingCostService {
 	                calculation.getMonthlyTotal(),
 	                calculation.getAnnualTotal()
 	            );
-	            calculationHistoryRepository.save(history);
-	            logger.debug("計算履歴の保存が完了しました");
+	            history.setRuleVersion(plan.getVersion());
+	            // 保存は非同期で行い、完了を待たない
+	            calculationHistoryWriter.submit(history);
+	            logger.debug("計算履歴を書き込み待ちにしました");
 	        }
 	        
 	        return calculation;
 	    }
 	 
+	 /**
+	  * 郵便番号から都道府県名を取得する
+	  * 
+	  * 都道府県が決まらない郵便番号（形式の誤りや割り当てのない上3桁）は、平均家賃の未登録と区別して扱う。
+	  * 
+	  * @throws PostalCodeNotFoundException 都道府県が決まらない場合
+	  */
+	 private String getPrefectureName(String postalCode) {
+	        String prefecture = postalCodeService.getPrefectureName(postalCode);
+	        if (prefecture == null) {
+	            throw new PostalCodeNotFoundException("postalCode: " + postalCode);
+	        }
+	        return prefecture;
+	    }
+	 
+	 /**
+	  * 1つの郵便番号について、年収を一定間隔で変えながら生活費を計算する（履歴は保存しない）
+	  * 
+	  * 郵便番号の解決は1回だけ行い、すべての年収を同じ平均家賃・ルールセットで計算する。
+	  * 
+	  * @param postalCode 郵便番号
+	  * @param minAnnualIncome 年収の最小値
+	  * @param maxAnnualIncome 年収の最大値（最小値から刻み幅ずつ増やし、この値を超えない範囲まで計算する）
+	  * @param step 年収の刻み幅
+	  * @return 計算結果
+	  */
+	 public LivingCostSweep sweep(String postalCode, int minAnnualIncome, int maxAnnualIncome, int step) {
+	        if (minAnnualIncome < 1 || maxAnnualIncome > 100000000 || minAnnualIncome > maxAnnualIncome) {
+	            throw new InvalidParameterException("年収の範囲は1円以上1億円以下で、最小値を最大値以下にしてください");
+	        }
+	        if (step < 1) {
+	            throw new InvalidParameterException("年収の刻み幅は1円以上で指定してください");
+	        }
+	        long points = ((long) maxAnnualIncome - minAnnualIncome) / step + 1;
+	        if (points > maxSweepPoints) {
+	            throw new InvalidParameterException("計算する年収の数は" + maxSweepPoints + "以下にしてください: " + points);
+	        }
+	        
+	        // 都道府県を取得（1回だけ）
+	        String prefecture = getPrefectureName(postalCode);
+	        int prefectureCode = PrefectureCodes.codeOf(prefecture);
+	        PrefectureService.RentTable rentTable = prefectureService.current();
+	        if (rentTable.getAverageRent(prefectureCode) == null) {
+	            throw new RentNotRegisteredException(prefecture);
+	        }
+	        CalculationPlan plan = calculationRuleService.current();
+	        
+	        int size = (int) points;
+	        int[] annualIncomes = new int[size];
+	        for (int i = 0; i < size; i++) {
+	            annualIncomes[i] = minAnnualIncome + i * step;
+	        }
+	        byte[] prefectureCodes = new byte[size];
+	        Arrays.fill(prefectureCodes, (byte) prefectureCode);
+	        
+	        LivingCostColumns columns = new LivingCostColumns(size);
+	        livingCostBatchCalculator.calculate(annualIncomes, prefectureCodes, size, rentTable, plan, columns);
+	        logger.info("年収スイープ計算完了 - 件数: {}件", size);
+	        
+	        return new LivingCostSweep(postalCode, prefecture, plan.getVersion(), annualIncomes,
+	            columns.getMonthlyRent(), columns.getMonthlyUtilities(), columns.getMonthlyFood(),
+	            columns.getMonthlyCommunication(), columns.getMonthlyOthers(),
+	            columns.getMonthlyTotal(), columns.getAnnualTotal());
+	    }
+	 
 	/**
      * 計算履歴をページネーション付きで検索する
      * 
+     * 一覧の表示用に、エンティティではなく読み取り専用の行（{@link CalculationHistoryView}）を返す。
+     * 1件多く取得して次のページがあるか判定し、最後のページでは取得した件数から総件数を決める。
+     * 総件数を数えるのは次のページがある場合だけで、ユーザーだけで絞り込む場合は保存時に加算している件数を読む。
+     * 
      * @param user ユーザー（nullの場合は全ユーザー）
      * @param postalCode 郵便番号（nullの場合は条件に含めない）
      * @param minAnnualIncome 年収の最小値（nullの場合は条件に含めない）
@@ -106,23 +187,27 @@ public class LivingCostService {
      * @return ページネーション情報を含む検索結果
      */
     @Transactional(readOnly = true)
-    public Page<CalculationHistory> searchHistory(User user, String postalCode, 
+    public Page<CalculationHistoryView> searchHistory(User user, String postalCode, 
                                                    Integer minAnnualIncome, 
                                                    Integer maxAnnualIncome,
                                                    Pageable pageable) {
         logger.debug("計算履歴検索開始 - page: {}, size: {}", 
                      pageable.getPageNumber(), pageable.getPageSize());
         
-        // 検索結果を取得
-        List<CalculationHistory> histories = calculationHistoryRepository.searchByConditions(
+        // 検索結果を取得（1件多く取得して、次のページがあるか判定する）
+        List<CalculationHistoryView> histories = new ArrayList<>(calculationHistoryRepository.searchByOffset(
             user, postalCode, minAnnualIncome, maxAnnualIncome,
-            pageable.getPageNumber(), pageable.getPageSize()
-        );
+            pageable.getOffset(), pageable.getPageSize() + 1
+        ));
+        boolean hasNext = histories.size() > pageable.getPageSize();
+        if (hasNext) {
+            histories.remove(histories.size() - 1);
+        }
         
-        // 総件数を取得
-        long total = calculationHistoryRepository.countByConditions(
-            user, postalCode, minAnnualIncome, maxAnnualIncome
-        );
+        // 総件数を取得（次のページがなければ取得した件数で決まる。範囲外のページは数えて確かめる）
+        long total = hasNext || (histories.isEmpty() && pageable.getOffset() > 0)
+            ? calculationHistoryRepository.countByConditions(user, postalCode, minAnnualIncome, maxAnnualIncome)
+            : pageable.getOffset() + histories.size();
         
         logger.info("計算履歴検索完了 - 取得件数: {}件 / 総件数: {}件", 
                    histories.size(), total);
@@ -130,5 +215,72 @@ public class LivingCostService {
         // Pageオブジェクトを作成して返す
         return new PageImpl<>(histories, pageable, total);
     }
+    
+    /**
+     * 計算履歴を位置（カーソル）を指定して検索する
+     * 
+     * afterとbeforeはどちらか一方だけ指定する（どちらも指定しない場合は先頭のページ）。
+     * 一覧の表示用に、エンティティではなく読み取り専用の行（{@link CalculationHistoryView}）を返す。
+     * 
+     * @param user ユーザー（nullの場合は全ユーザー）
+     * @param postalCode 郵便番号（nullの場合は条件に含めない）
+     * @param minAnnualIncome 年収の最小値（nullの場合は条件に含めない）
+     * @param maxAnnualIncome 年収の最大値（nullの場合は条件に含めない）
+     * @param after この位置より古い履歴を取得する（次のページ）
+     * @param before この位置より新しい履歴を取得する（前のページ）
+     * @param size 1ページあたりの件数
+     * @return 前後のページの位置を含む検索結果（絞り込んだ場合、総件数はnull）
+     */
+    @Transactional(readOnly = true)
+    public CalculationHistorySlice searchHistory(User user, String postalCode,
+                                                 Integer minAnnualIncome,
+                                                 Integer maxAnnualIncome,
+                                                 String after, String before, int size) {
+        if (size < 1) {
+            throw new InvalidParameterException("1ページあたりの件数は1件以上で指定してください");
+        }
+        if (after != null && before != null) {
+            throw new InvalidParameterException("afterとbeforeは同時に指定できません");
+        }
+        boolean newer = before != null;
+        CalculationHistoryCursor cursor = after != null ? CalculationHistoryCursor.decode(after)
+            : before != null ? CalculationHistoryCursor.decode(before) : null;
+        
+        // 1件多く取得して、さらに先のページがあるか判定する
+        List<CalculationHistoryView> histories = new ArrayList<>(calculationHistoryRepository.searchByCursor(
+            user, postalCode, minAnnualIncome, maxAnnualIncome, cursor, newer, size + 1));
+        boolean hasMore = histories.size() > size;
+        boolean hasPrevious;
+        boolean hasNext;
+        if (newer) {
+            // 新しい側に読んだため、余分な1件は先頭にある
+            if (hasMore) {
+                histories.remove(0);
+            }
+            hasPrevious = hasMore;
+            hasNext = true;
+        } else {
+            if (hasMore) {
+                histories.remove(histories.size() - 1);
+            }
+            hasPrevious = cursor != null;
+            hasNext = hasMore;
+        }
+        
+        String previousCursor = hasPrevious && !histories.isEmpty()
+            ? CalculationHistoryCursor.of(histories.get(0)).encode() : null;
+        String nextCursor = hasNext && !histories.isEmpty()
+            ? CalculationHistoryCursor.of(histories.get(histories.size() - 1)).encode() : null;
+        
+        // 総件数はユーザーごとの件数を読めば済む場合だけ返す（絞り込んだ場合は数えない）
+        boolean userOnly = user != null && (postalCode == null || postalCode.isEmpty())
+            && minAnnualIncome == null && maxAnnualIncome == null;
+        Long total = userOnly ? calculationHistoryRepository.countByUser(user) : null;
+        
+        logger.info("計算履歴検索完了 - 取得件数: {}件 / 総件数: {}件", 
+                   histories.size(), total != null ? total : "不明");
+        
+        return new CalculationHistorySlice(histories, size, total, previousCursor, nextCursor);
+    }
 	 
 }
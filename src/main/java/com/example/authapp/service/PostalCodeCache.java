@@ -0,0 +1,224 @@
+package com.example.authapp.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * zipcloud APIの検索結果を保持する上限付きキャッシュ
+ *
+ * 最も長く参照されていないものから追い出す（LRU）。
+ * 見つかった結果は、更新期限（ttl）を過ぎても破棄期限（hard-ttl）までは古い値として返し、
+ * 呼び出し側が裏で更新できるようにする。
+ * 見つからなかった郵便番号も短い有効期限で保持し、不正な郵便番号でAPIを繰り返し呼ばないようにする。
+ */
+@Component
+public class PostalCodeCache {
+
+    // 保持する最大件数
+    private final int maxSize;
+
+    // 見つかった結果を更新すべきになるまでの期間（ナノ秒）
+    private final long ttlNanos;
+
+    // 見つかった結果を破棄するまでの期間（ナノ秒）
+    private final long hardTtlNanos;
+
+    // 見つからなかった結果の有効期間（ナノ秒）
+    private final long negativeTtlNanos;
+
+    // アクセス順のLinkedHashMap（getでも順序が変わるため、読み書きともロックで保護する）
+    private final Map<String, Entry> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // 運用向けの統計値
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public PostalCodeCache(
+            @Value("${postal.cache.max-size:10000}") int maxSize,
+            @Value("${postal.cache.ttl-seconds:86400}") long ttlSeconds,
+            @Value("${postal.cache.hard-ttl-seconds:2592000}") long hardTtlSeconds,
+            @Value("${postal.cache.negative-ttl-seconds:300}") long negativeTtlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.hardTtlNanos = TimeUnit.SECONDS.toNanos(Math.max(ttlSeconds, hardTtlSeconds));
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > PostalCodeCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * キャッシュから検索結果を取得する
+     *
+     * @param postalCode ハイフンを除いた7桁の郵便番号
+     * @return 検索結果（キャッシュにない場合や破棄期限を過ぎた場合はnull、更新期限を過ぎた場合は古い値）
+     */
+    public Entry get(String postalCode) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Entry entry = entries.get(postalCode);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (now - entry.expiresAt >= 0) {
+                entries.remove(postalCode);
+                expirations.increment();
+                misses.increment();
+                return null;
+            }
+            if (entry.isNotFound()) {
+                negativeHits.increment();
+            } else if (now - entry.staleAt >= 0) {
+                staleHits.increment();
+            } else {
+                hits.increment();
+            }
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 見つかった結果を保持する
+     *
+     * @param postalCode ハイフンを除いた7桁の郵便番号
+     * @param prefectureName 都道府県名
+     */
+    public void putFound(String postalCode, String prefectureName) {
+        long now = System.nanoTime();
+        put(postalCode, new Entry(prefectureName, now + ttlNanos, now + hardTtlNanos));
+    }
+
+    /**
+     * 永続化していた結果を読み込む（解決してからの経過時間に応じて期限を設定する）
+     *
+     * @param postalCode ハイフンを除いた7桁の郵便番号
+     * @param prefectureName 都道府県名
+     * @param ageNanos APIで解決してからの経過時間
+     * @return 読み込んだ場合はtrue（破棄期限を過ぎていた場合はfalse）
+     */
+    public boolean load(String postalCode, String prefectureName, long ageNanos) {
+        if (ageNanos >= hardTtlNanos) {
+            return false;
+        }
+        long now = System.nanoTime();
+        put(postalCode, new Entry(prefectureName, now + ttlNanos - ageNanos, now + hardTtlNanos - ageNanos));
+        return true;
+    }
+
+    /**
+     * 見つからなかった結果を保持する（通常より短い期間）
+     *
+     * @param postalCode ハイフンを除いた7桁の郵便番号
+     */
+    public void putNotFound(String postalCode) {
+        long expiresAt = System.nanoTime() + negativeTtlNanos;
+        put(postalCode, new Entry(null, expiresAt, expiresAt));
+    }
+
+    /**
+     * すべての結果を破棄する
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 保持する最大件数
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 運用向けの統計値を取得する
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            stats.put("size", entries.size());
+        } finally {
+            lock.unlock();
+        }
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hits.sum());
+        stats.put("staleHits", staleHits.sum());
+        stats.put("negativeHits", negativeHits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        return stats;
+    }
+
+    private void put(String postalCode, Entry entry) {
+        lock.lock();
+        try {
+            entries.put(postalCode, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * キャッシュされた検索結果
+     */
+    public static final class Entry {
+
+        // 都道府県名（見つからなかった場合はnull）
+        private final String prefectureName;
+
+        // 更新期限（System.nanoTime基準）
+        private final long staleAt;
+
+        // 破棄期限（System.nanoTime基準）
+        private final long expiresAt;
+
+        private Entry(String prefectureName, long staleAt, long expiresAt) {
+            this.prefectureName = prefectureName;
+            this.staleAt = staleAt;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getPrefectureName() {
+            return prefectureName;
+        }
+
+        public boolean isNotFound() {
+            return prefectureName == null;
+        }
+
+        /**
+         * 更新期限を過ぎているか（値は使えるが、裏で更新すべき状態）
+         */
+        public boolean isStale() {
+            return System.nanoTime() - staleAt >= 0;
+        }
+    }
+}
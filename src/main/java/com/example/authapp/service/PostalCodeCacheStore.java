@@ -0,0 +1,147 @@
+package com.example.authapp.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import com.example.authapp.entity.PostalCodeCacheEntry;
+import com.example.authapp.repository.PostalCodeCacheRepository;
+
+/**
+ * 郵便番号キャッシュの永続化
+ *
+ * APIで解決した結果はキューにためておき、バックグラウンドでまとめてpostal_code_cacheに書き込む（ライトビハインド）。
+ * 起動時にはテーブルの内容をメモリ上のキャッシュに読み込み、リクエストを受ける前にキャッシュを温めておく。
+ * 永続化はあくまで補助なので、キューが満杯の場合や書き込みに失敗した場合は諦める。
+ */
+@Component
+@DependsOn("entityManagerFactory") // テーブルはHibernateのddl-autoで作成されるため、その後に読み込む
+public class PostalCodeCacheStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostalCodeCacheStore.class);
+
+    private final PostalCodeCacheRepository postalCodeCacheRepository;
+    private final PostalCodeCache postalCodeCache;
+
+    // 書き込み待ちのキュー
+    private final BlockingQueue<PostalCodeCacheEntry> pending;
+
+    // 1回の書き込みでまとめる最大件数
+    private final int batchSize;
+
+    // 書き込み間隔（ミリ秒）
+    private final long flushIntervalMillis;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "postal-cache-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // キューが満杯で捨てた件数
+    private final LongAdder dropped = new LongAdder();
+
+    public PostalCodeCacheStore(PostalCodeCacheRepository postalCodeCacheRepository,
+                                PostalCodeCache postalCodeCache,
+                                @Value("${postal.cache.store.queue-capacity:10000}") int queueCapacity,
+                                @Value("${postal.cache.store.batch-size:500}") int batchSize,
+                                @Value("${postal.cache.store.flush-interval-millis:5000}") long flushIntervalMillis) {
+        this.postalCodeCacheRepository = postalCodeCacheRepository;
+        this.postalCodeCache = postalCodeCache;
+        this.pending = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    /**
+     * 起動時にテーブルの内容をキャッシュに読み込み、定期的な書き込みを開始する
+     */
+    @PostConstruct
+    public void start() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int[] loaded = new int[1];
+            postalCodeCacheRepository.findRecent(postalCodeCache.getMaxSize(), entry -> {
+                long ageNanos = Duration.between(entry.getResolvedAt(), now).toNanos();
+                if (postalCodeCache.load(entry.getPostalCode(), entry.getPrefectureName(), ageNanos)) {
+                    loaded[0]++;
+                }
+            });
+            logger.info("郵便番号キャッシュを読み込みました - 件数: {}件", loaded[0]);
+        } catch (DataAccessException e) {
+            logger.warn("郵便番号キャッシュの読み込みに失敗しました。空のキャッシュで起動します: {}", e.getMessage());
+        }
+
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止時に書き込み待ちの結果をすべて書き込む
+     */
+    @PreDestroy
+    public void stop() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    /**
+     * APIで解決した結果を書き込み待ちにする（呼び出し元は待たない）
+     *
+     * @param postalCode ハイフンを除いた7桁の郵便番号
+     * @param prefectureName 都道府県名
+     */
+    public void enqueue(String postalCode, String prefectureName) {
+        if (!pending.offer(new PostalCodeCacheEntry(postalCode, prefectureName, LocalDateTime.now()))) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * 書き込み待ちの件数
+     */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * キューが満杯で捨てた件数
+     */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    private void flushQuietly() {
+        try {
+            List<PostalCodeCacheEntry> batch = new ArrayList<>(batchSize);
+            while (pending.drainTo(batch, batchSize) > 0) {
+                postalCodeCacheRepository.saveAll(batch);
+                batch.clear();
+            }
+        } catch (RuntimeException e) {
+            // 例外を外に出すと定期的な書き込みが止まるため、DBアクセス以外の失敗もここで止める
+            logger.warn("郵便番号キャッシュの保存に失敗しました: {}", e.getMessage());
+        }
+    }
+}
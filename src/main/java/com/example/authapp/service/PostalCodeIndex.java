@@ -0,0 +1,281 @@
+package com.example.authapp.service;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 郵便番号（7桁）から都道府県コードを引くためのオフライン索引
+ *
+ * 日本郵便の郵便番号データ（KEN_ALL.CSV形式）から構築し、
+ * 昇順に並べた郵便番号の int 列と都道府県コードの byte 列で保持する。
+ * 検索は二分探索で行い、オブジェクトを生成しない。
+ * 構築後は不変なので、複数スレッドから同時に参照してよい。
+ *
+ * バイナリ形式（ビッグエンディアン、固定長）:
+ * <pre>
+ *   int    MAGIC ("PCIX")
+ *   int    FORMAT_VERSION
+ *   int    件数 n
+ *   int[n] 昇順の郵便番号
+ *   byte[n] 都道府県コード
+ * </pre>
+ * バイナリファイルは {@link #map(Path)} でメモリマップして読むため、
+ * データはヒープ外に置かれ、起動時にCSVを解析する必要がない。
+ */
+public final class PostalCodeIndex {
+
+    // 空の索引（データが読めなかった場合に使用）
+    public static final PostalCodeIndex EMPTY = new PostalCodeIndex(IntBuffer.allocate(0), ByteBuffer.allocate(0));
+
+    // バイナリ形式の識別子と版数
+    private static final int MAGIC = 0x50434958;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+
+    // KEN_ALL.CSVの列位置
+    private static final int COLUMN_LOCAL_GOVERNMENT_CODE = 0;
+    private static final int COLUMN_POSTAL_CODE = 2;
+
+    // 昇順に並んだ7桁の郵便番号
+    private final IntBuffer postalCodes;
+
+    // postalCodesと同じ位置に対応する都道府県コード
+    private final ByteBuffer prefectureCodes;
+
+    private PostalCodeIndex(IntBuffer postalCodes, ByteBuffer prefectureCodes) {
+        this.postalCodes = postalCodes;
+        this.prefectureCodes = prefectureCodes;
+    }
+
+    /**
+     * 郵便番号から都道府県コードを取得する
+     *
+     * @param postalCode 郵便番号（7桁、ハイフンありでも可）
+     * @return 都道府県コード（索引にない場合や形式が不正な場合は0）
+     */
+    public int lookup(String postalCode) {
+        int code = parsePostalCode(postalCode);
+        if (code < 0) {
+            return 0;
+        }
+        return lookup(code);
+    }
+
+    /**
+     * 数値化した郵便番号から都道府県コードを取得する
+     *
+     * @param postalCode 7桁の郵便番号を数値にしたもの
+     * @return 都道府県コード（索引にない場合は0）
+     */
+    public int lookup(int postalCode) {
+        // 絶対位置指定のgetだけを使うため、複数スレッドから同時に呼んでよい
+        int low = 0;
+        int high = postalCodes.limit() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = postalCodes.get(mid);
+            if (value < postalCode) {
+                low = mid + 1;
+            } else if (value > postalCode) {
+                high = mid - 1;
+            } else {
+                return prefectureCodes.get(mid);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 索引に登録されている郵便番号の件数
+     */
+    public int size() {
+        return postalCodes.limit();
+    }
+
+    /**
+     * 郵便番号の文字列を数値に変換する（ハイフンは読み飛ばす）
+     *
+     * @param postalCode 郵便番号
+     * @return 7桁の郵便番号を数値にしたもの（形式が不正な場合は-1）
+     */
+    public static int parsePostalCode(String postalCode) {
+        if (postalCode == null) {
+            return -1;
+        }
+        int value = 0;
+        int digits = 0;
+        for (int i = 0; i < postalCode.length(); i++) {
+            char c = postalCode.charAt(i);
+            if (c == '-') {
+                continue;
+            }
+            if (c < '0' || c > '9' || ++digits > 7) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return digits == 7 ? value : -1;
+    }
+
+    /**
+     * 索引をバイナリ形式で書き出す
+     *
+     * @param outputStream 出力先
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        int size = size();
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeInt(postalCodes.get(i));
+        }
+        for (int i = 0; i < size; i++) {
+            out.writeByte(prefectureCodes.get(i));
+        }
+        out.flush();
+    }
+
+    /**
+     * バイナリ形式の索引ファイルをメモリマップして開く
+     *
+     * マップ後はファイルを閉じてもデータは参照でき、ヒープには載らない。
+     *
+     * @param file 索引ファイル
+     * @return 索引
+     * @throws IOException 読み込みに失敗した場合、または形式が不正な場合
+     */
+    public static PostalCodeIndex map(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.capacity() < HEADER_BYTES
+                || buffer.getInt(0) != MAGIC
+                || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("郵便番号索引の形式が不正です: " + file);
+        }
+        int size = buffer.getInt(8);
+        if (size < 0 || buffer.capacity() != HEADER_BYTES + (long) size * 5) {
+            throw new IOException("郵便番号索引のサイズが不正です: " + file);
+        }
+
+        // Java 8で実行しても動くようBuffer型でposition/limitを呼ぶ
+        Buffer view = buffer;
+        view.position(HEADER_BYTES);
+        view.limit(HEADER_BYTES + size * 4);
+        IntBuffer postalCodes = buffer.slice().asIntBuffer();
+
+        view.limit(buffer.capacity());
+        view.position(HEADER_BYTES + size * 4);
+        ByteBuffer prefectureCodes = buffer.slice();
+
+        return new PostalCodeIndex(postalCodes, prefectureCodes);
+    }
+
+    /**
+     * KEN_ALL.CSV形式のデータから索引を構築する
+     *
+     * 1列目（全国地方公共団体コード）の上2桁を都道府県コード、
+     * 3列目を7桁の郵便番号として読み込む。読めない行は無視する。
+     *
+     * @param inputStream CSVの入力ストリーム
+     * @param charset CSVの文字コード（日本郵便の配布データはShift_JIS）
+     * @return 構築した索引
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public static PostalCodeIndex fromCsv(InputStream inputStream, Charset charset) throws IOException {
+        // 郵便番号を上位、都道府県コードを下位8ビットに詰めて並べ替える
+        long[] entries = new long[1024];
+        int count = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, charset))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                long entry = parseLine(line);
+                if (entry < 0) {
+                    continue;
+                }
+                if (count == entries.length) {
+                    entries = Arrays.copyOf(entries, count * 2);
+                }
+                entries[count++] = entry;
+            }
+        }
+
+        Arrays.sort(entries, 0, count);
+
+        int[] postalCodes = new int[count];
+        byte[] prefectureCodes = new byte[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            int postalCode = (int) (entries[i] >>> 8);
+            // 同じ郵便番号が複数行にまたがる場合は最初の1件だけ残す
+            if (size > 0 && postalCodes[size - 1] == postalCode) {
+                continue;
+            }
+            postalCodes[size] = postalCode;
+            prefectureCodes[size] = (byte) (entries[i] & 0xFF);
+            size++;
+        }
+
+        return new PostalCodeIndex(IntBuffer.wrap(postalCodes, 0, size).slice(),
+                ByteBuffer.wrap(prefectureCodes, 0, size).slice());
+    }
+
+    /**
+     * CSVの1行から（郵便番号 << 8 | 都道府県コード）を取り出す
+     *
+     * @return 詰めた値（読めない行の場合は-1）
+     */
+    private static long parseLine(String line) {
+        String[] columns = line.split(",", COLUMN_POSTAL_CODE + 2);
+        if (columns.length <= COLUMN_POSTAL_CODE) {
+            return -1;
+        }
+
+        String localGovernmentCode = unquote(columns[COLUMN_LOCAL_GOVERNMENT_CODE]);
+        if (localGovernmentCode.length() < 2) {
+            return -1;
+        }
+        int prefectureCode;
+        try {
+            prefectureCode = Integer.parseInt(localGovernmentCode.substring(0, 2));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        if (PrefectureCodes.nameOf(prefectureCode) == null) {
+            return -1;
+        }
+
+        int postalCode = parsePostalCode(unquote(columns[COLUMN_POSTAL_CODE]));
+        if (postalCode < 0) {
+            return -1;
+        }
+        return ((long) postalCode << 8) | prefectureCode;
+    }
+
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1).trim();
+        }
+        return trimmed;
+    }
+}
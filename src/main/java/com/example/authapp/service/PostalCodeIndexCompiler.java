@@ -0,0 +1,68 @@
+package com.example.authapp.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * KEN_ALL.CSV形式の郵便番号データをバイナリ索引ファイルに変換するツール
+ *
+ * 使い方:
+ * <pre>
+ *   java -cp authapp.jar -Dloader.main=com.example.authapp.service.PostalCodeIndexCompiler \
+ *       org.springframework.boot.loader.PropertiesLauncher KEN_ALL.CSV Shift_JIS data/postal_codes.bin
+ * </pre>
+ * 変換後は /admin/postal-index/reload で稼働中のアプリケーションに反映できる。
+ */
+public final class PostalCodeIndexCompiler {
+
+    private PostalCodeIndexCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("使い方: PostalCodeIndexCompiler <CSVファイル> <文字コード> <出力ファイル>");
+            System.exit(1);
+        }
+        PostalCodeIndex index = compile(Paths.get(args[0]), Charset.forName(args[1]), Paths.get(args[2]));
+        System.out.println("郵便番号索引を作成しました: " + args[2] + " (" + index.size() + "件)");
+    }
+
+    /**
+     * CSVからバイナリ索引ファイルを作成する
+     *
+     * 一時ファイルに書き出してから置き換えるため、読み込み中のアプリケーションが
+     * 書きかけのファイルを見ることはない。
+     *
+     * @param csv 入力CSVファイル
+     * @param charset CSVの文字コード
+     * @param output 出力ファイル
+     * @return 作成した索引
+     * @throws IOException 読み書きに失敗した場合
+     */
+    public static PostalCodeIndex compile(Path csv, Charset charset, Path output) throws IOException {
+        PostalCodeIndex index;
+        try (InputStream inputStream = Files.newInputStream(csv)) {
+            index = PostalCodeIndex.fromCsv(inputStream, charset);
+        }
+
+        Path directory = output.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, "postal_codes", ".tmp");
+        try {
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(temporary))) {
+                index.writeTo(outputStream);
+            }
+            Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return index;
+    }
+}
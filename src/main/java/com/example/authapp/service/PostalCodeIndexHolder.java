@@ -0,0 +1,112 @@
+package com.example.authapp.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import com.example.authapp.exception.InvalidParameterException;
+
+/**
+ * 現在有効な郵便番号索引を保持する
+ *
+ * 起動時はバイナリ索引ファイルがあればメモリマップで開き、なければ同梱のCSVから構築する。
+ * 差し替えは新しい索引を完全に読み込んでから参照を入れ替えるだけなので、
+ * 検索中のスレッドがブロックされたり、読み込み途中の索引を見たりすることはない。
+ */
+@Component
+public class PostalCodeIndexHolder {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostalCodeIndexHolder.class);
+
+    // バイナリ索引ファイルの既定の場所
+    private final Path binaryLocation;
+
+    // 現在有効な索引（参照の入れ替えのみで更新する）
+    private volatile PostalCodeIndex current;
+
+    public PostalCodeIndexHolder(
+            @Value("${postal.index.binary-location:./data/postal_codes.bin}") String binaryLocation,
+            @Value("${postal.index.csv-location:classpath:postal/postal_codes.csv}") Resource csv,
+            @Value("${postal.index.csv-charset:UTF-8}") String charset) {
+        this.binaryLocation = Paths.get(binaryLocation);
+        this.current = loadInitial(csv, Charset.forName(charset));
+    }
+
+    /**
+     * 現在有効な索引を取得する
+     */
+    public PostalCodeIndex current() {
+        return current;
+    }
+
+    /**
+     * 既定の場所のバイナリ索引ファイルで索引を差し替える
+     *
+     * @return 差し替え後の索引
+     * @throws IOException ファイルが読めない場合（現在の索引はそのまま）
+     */
+    public PostalCodeIndex reload() throws IOException {
+        return reload(binaryLocation);
+    }
+
+    /**
+     * 既定の場所と同じディレクトリにあるバイナリ索引ファイルで索引を差し替える
+     *
+     * ファイル名はそのディレクトリからの相対パスとして解決し、ディレクトリの外（絶対パス、..、
+     * ディレクトリの外を指すシンボリックリンク）は受け付けない。
+     *
+     * @param fileName バイナリ索引ファイルの名前
+     * @return 差し替え後の索引
+     * @throws InvalidParameterException ディレクトリの外のファイルを指定した場合
+     * @throws IOException ファイルが読めない場合（現在の索引はそのまま）
+     */
+    public PostalCodeIndex reload(String fileName) throws IOException {
+        Path directory = binaryLocation.toAbsolutePath().normalize().getParent();
+        Path file = directory.resolve(fileName).normalize();
+        if (!file.startsWith(directory) || !file.toRealPath().startsWith(directory.toRealPath())) {
+            throw new InvalidParameterException("索引ファイルは索引ディレクトリ内のファイル名で指定してください: " + fileName);
+        }
+        return reload(file);
+    }
+
+    private synchronized PostalCodeIndex reload(Path file) throws IOException {
+        PostalCodeIndex index = PostalCodeIndex.map(file);
+        current = index;
+        logger.info("郵便番号索引を差し替えました - file: {}, 件数: {}件", file, index.size());
+        return index;
+    }
+
+    private PostalCodeIndex loadInitial(Resource csv, Charset charset) {
+        if (Files.isRegularFile(binaryLocation)) {
+            try {
+                PostalCodeIndex index = PostalCodeIndex.map(binaryLocation);
+                logger.info("郵便番号索引を読み込みました - file: {}, 件数: {}件", binaryLocation, index.size());
+                return index;
+            } catch (IOException e) {
+                logger.error("郵便番号索引ファイルが読めません。CSVから構築します: {}", binaryLocation, e);
+            }
+        }
+
+        if (!csv.exists()) {
+            logger.warn("郵便番号データが見つかりません。APIのみで解決します: {}", csv);
+            return PostalCodeIndex.EMPTY;
+        }
+        try (InputStream inputStream = csv.getInputStream()) {
+            PostalCodeIndex index = PostalCodeIndex.fromCsv(inputStream, charset);
+            logger.info("郵便番号索引をCSVから構築しました - 件数: {}件", index.size());
+            return index;
+        } catch (IOException e) {
+            logger.error("郵便番号データの読み込みに失敗しました。APIのみで解決します: {}", csv, e);
+            return PostalCodeIndex.EMPTY;
+        }
+    }
+}
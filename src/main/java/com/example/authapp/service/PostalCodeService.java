@@ -1,17 +1,38 @@
 package com.example.authapp.service;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PreDestroy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import com.example.authapp.dto.PostalCodeResolution;
 import com.example.authapp.dto.ZipCloudResponse;
 import com.example.authapp.exception.ExternalApiException;
+import com.example.authapp.exception.ExternalApiRejectedException;
 import com.example.authapp.exception.InvalidParameterException;
 import com.example.authapp.exception.PostalCodeNotFoundException;
 
@@ -20,44 +41,120 @@ public class PostalCodeService {
     
     private static final Logger logger = LoggerFactory.getLogger(PostalCodeService.class);
     
-    // zipcloud APIのベースURL
+    // zipcloud APIのベースURL（既定値）
     private static final String ZIPCLOUD_API_URL = "https://zipcloud.ibsnet.co.jp/api/search";
     
-    // RestTemplate（Spring Boot 2.xで使用）
+    // 呼び出すAPIのURL（zipcloud.api-urlで変更できる）
+    private final String apiUrl;
+    
+    // RestTemplate（Spring Boot 2.xで使用、接続の再利用とタイムアウトはZipCloudClientConfigで設定）
     private final RestTemplate restTemplate;
     
-    // 郵便番号の上2桁から都道府県名へのマッピング（フォールバック用）
-    private static final Map<String, String> prefectureMap = new HashMap<>();
-    static {
-        prefectureMap.put("10", "東京都");
-        prefectureMap.put("27", "大阪府");
-        prefectureMap.put("26", "京都府");
-        prefectureMap.put("14", "神奈川県");
-        prefectureMap.put("11", "埼玉県");
-        prefectureMap.put("12", "千葉県");
-        // 他の主要な郵便番号範囲も追加可能
-        prefectureMap.put("50", "岐阜県");
+    // API同時呼び出し数の上限（バルクヘッド）
+    private final Semaphore apiPermits;
+    
+    // 空きを待つ最大時間（ミリ秒）
+    private final long apiPermitWaitMillis;
+    
+    // APIが劣化している間は呼び出しを止めるサーキットブレーカー
+    private final CircuitBreaker circuitBreaker;
+    
+    // 同梱データから構築した郵便番号索引（API呼び出しより優先）
+    private final PostalCodeIndexHolder postalCodeIndexHolder;
+    
+    // APIの検索結果のキャッシュ
+    private final PostalCodeCache postalCodeCache;
+    
+    // キャッシュの永続化（再起動後もキャッシュを温めておく）
+    private final PostalCodeCacheStore postalCodeCacheStore;
+    
+    // 同じ郵便番号へのAPI呼び出しを1回にまとめる
+    private final SingleFlight<String> apiCalls = new SingleFlight<>();
+    
+    // 更新期限を過ぎたキャッシュを裏で更新するスレッドプール（キューが満杯の場合は更新を諦める）
+    private final ThreadPoolExecutor refreshExecutor;
+    
+    // 更新を予約済みの郵便番号（同じ郵便番号の更新を重複して積まない）
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    
+    // 一括解決でAPIを並列に呼び出すスレッドプール（並列数の上限）
+    private final ExecutorService bulkExecutor;
+    
+    public PostalCodeService(@Qualifier("zipCloudRestTemplate") RestTemplate restTemplate,
+                             PostalCodeIndexHolder postalCodeIndexHolder,
+                             PostalCodeCache postalCodeCache,
+                             PostalCodeCacheStore postalCodeCacheStore,
+                             CircuitBreaker zipCloudCircuitBreaker,
+                             @Value("${zipcloud.bulkhead.max-concurrent-calls:20}") int maxConcurrentCalls,
+                             @Value("${zipcloud.bulkhead.max-wait-millis:0}") long maxWaitMillis,
+                             @Value("${postal.cache.refresh-threads:2}") int refreshThreads,
+                             @Value("${postal.cache.refresh-queue-capacity:100}") int refreshQueueCapacity,
+                             @Value("${zipcloud.bulk.parallelism:8}") int bulkParallelism,
+                             @Value("${zipcloud.api-url:" + ZIPCLOUD_API_URL + "}") String apiUrl) {
+        this.restTemplate = restTemplate;
+        this.apiUrl = apiUrl;
+        this.postalCodeIndexHolder = postalCodeIndexHolder;
+        this.postalCodeCache = postalCodeCache;
+        this.postalCodeCacheStore = postalCodeCacheStore;
+        this.apiPermits = new Semaphore(maxConcurrentCalls);
+        this.apiPermitWaitMillis = maxWaitMillis;
+        this.circuitBreaker = zipCloudCircuitBreaker;
+        this.refreshExecutor = createRefreshExecutor(refreshThreads, refreshQueueCapacity);
+        this.bulkExecutor = Executors.newFixedThreadPool(bulkParallelism, daemonThreads("postal-bulk-"));
+    }
+    
+    private static ThreadPoolExecutor createRefreshExecutor(int threads, int queueCapacity) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            daemonThreads("postal-refresh-"),
+            new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+    
+    private static ThreadFactory daemonThreads(String namePrefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
     
-    public PostalCodeService() {
-        this.restTemplate = new RestTemplate();
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+        bulkExecutor.shutdownNow();
     }
     
     /**
-     * 郵便番号から都道府県名を取得（API優先、失敗時はフォールバック）
+     * 郵便番号から都道府県名を取得（索引・上3桁の表を優先、決まらない場合はキャッシュ・API、失敗時はフォールバック）
      * 
      * @param postalCode 郵便番号（7桁、ハイフンありでも可）
      * @return 都道府県名（取得できない場合はnull）
      */
     public String getPrefectureName(String postalCode) {
-        // まずAPIから取得を試みる
+        int numericCode = PostalCodeIndex.parsePostalCode(postalCode);
+        if (numericCode >= 0) {
+            String local = getPrefectureNameLocally(numericCode);
+            if (local != null) {
+                return local;
+            }
+        }
+        
+        // 次にキャッシュ、なければAPIから取得を試みる
         try {
-            String prefectureName = getPrefectureNameFromApi(postalCode);
+            String prefectureName = getPrefectureNameCached(postalCode);
             if (prefectureName != null) {
                 return prefectureName;
             }
+        } catch (ExternalApiRejectedException e) {
+            // APIを呼び出さずに拒否された場合は、待たずにフォールバック
+            // （サーキットブレーカーが開いている間は毎回発生するため、状態遷移はCircuitBreakerでログ出力する）
+            logger.debug("API呼び出しを拒否、フォールバック処理を実行: {}", e.getMessage());
         } catch (ExternalApiException e) {
-            // APIが失敗した場合は、既存の上2桁から判定する方法を使用（フォールバック）
+            // APIが失敗した場合は、上3桁から判定する方法を使用（フォールバック）
             logger.warn("API取得失敗、フォールバック処理を実行: {}", postalCode, e);
         }
         
@@ -65,6 +162,218 @@ public class PostalCodeService {
         return getPrefectureNameFromPrefix(postalCode);
     }
     
+    /**
+     * 複数の郵便番号から都道府県名をまとめて取得する
+     * 
+     * 重複を除いたうえで、索引・上3桁の表・キャッシュで解決できるものを先に返し、
+     * 残りだけをAPIで並列に解決する（並列数は zipcloud.bulk.parallelism まで）。
+     * 1件ごとに結果とエラーを返し、一部の失敗で全体を失敗にはしない。
+     * 
+     * @param postalCodes 郵便番号（7桁、ハイフンありでも可）
+     * @return 解決結果（重複を除いた郵便番号ごと、最初に現れた順）
+     */
+    public List<PostalCodeResolution> getPrefectureNames(Collection<String> postalCodes) {
+        Map<String, PostalCodeResolution> resolved = new LinkedHashMap<>();
+        Map<String, CompletableFuture<PostalCodeResolution>> remote = new LinkedHashMap<>();
+        List<String> order = new ArrayList<>();
+        
+        for (String postalCode : postalCodes) {
+            String code = postalCode == null ? "" : postalCode.replace("-", "");
+            if (resolved.containsKey(code) || remote.containsKey(code)) {
+                continue;
+            }
+            order.add(code);
+            
+            int numericCode = PostalCodeIndex.parsePostalCode(code);
+            if (numericCode < 0) {
+                resolved.put(code, new PostalCodeResolution(postalCode, null, null, "郵便番号の形式が不正です"));
+                continue;
+            }
+            
+            String local = getPrefectureNameLocally(numericCode);
+            if (local != null) {
+                resolved.put(code, new PostalCodeResolution(code, local, PostalCodeResolution.SOURCE_LOCAL, null));
+                continue;
+            }
+            
+            PostalCodeCache.Entry cached = postalCodeCache.get(code);
+            if (cached != null) {
+                if (cached.isStale()) {
+                    scheduleRefresh(code);
+                }
+                resolved.put(code, cached.isNotFound()
+                    ? notFound(code)
+                    : new PostalCodeResolution(code, cached.getPrefectureName(), PostalCodeResolution.SOURCE_CACHE, null));
+                continue;
+            }
+            
+            remote.put(code, CompletableFuture.supplyAsync(() -> resolveByApi(code), bulkExecutor));
+        }
+        
+        logger.info("郵便番号一括解決 - 件数: {}件 / API呼び出し: {}件", order.size(), remote.size());
+        
+        List<PostalCodeResolution> results = new ArrayList<>(order.size());
+        for (String code : order) {
+            PostalCodeResolution result = resolved.get(code);
+            results.add(result != null ? result : remote.get(code).join());
+        }
+        return results;
+    }
+    
+    /**
+     * 一括解決の1件分をAPIで解決する（例外は結果のエラーに変換する）
+     */
+    private PostalCodeResolution resolveByApi(String code) {
+        try {
+            String prefectureName = apiCalls.execute(code, () -> fetchAndCache(code));
+            if (prefectureName == null) {
+                return notFound(code);
+            }
+            return new PostalCodeResolution(code, prefectureName, PostalCodeResolution.SOURCE_API, null);
+        } catch (ExternalApiException e) {
+            return new PostalCodeResolution(code, getPrefectureNameFromPrefix(code),
+                PostalCodeResolution.SOURCE_FALLBACK, e.getMessage());
+        }
+    }
+    
+    private PostalCodeResolution notFound(String code) {
+        return new PostalCodeResolution(code, getPrefectureNameFromPrefix(code),
+            PostalCodeResolution.SOURCE_FALLBACK, "郵便番号が見つかりません");
+    }
+    
+    /**
+     * ネットワーク呼び出しなしで都道府県名を取得（同梱の索引、次に上3桁の表）
+     * 
+     * @param numericCode 7桁の郵便番号を数値にしたもの
+     * @return 都道府県名（決まらない場合はnull）
+     */
+    private String getPrefectureNameLocally(int numericCode) {
+        // まず同梱データの索引から取得を試みる
+        String indexed = PrefectureCodes.nameOf(postalCodeIndexHolder.current().lookup(numericCode));
+        if (indexed != null) {
+            return indexed;
+        }
+        
+        // 上3桁だけで都道府県が決まる場合はAPIを呼ばない
+        return PrefectureCodes.nameOf(PostalPrefixTable.prefectureCodeOf(numericCode));
+    }
+    
+    /**
+     * 郵便番号から都道府県名を取得（キャッシュ優先、なければAPI使用）
+     * 
+     * 同じ郵便番号のAPI呼び出しが実行中の場合は、新たに呼び出さずその結果を共有する。
+     * 更新期限を過ぎたキャッシュはそのまま返し、APIでの更新は裏で行う。
+     * 
+     * @param postalCode 郵便番号（7桁、ハイフンありでも可）
+     * @return 都道府県名（APIで見つからなかった場合はnull）
+     */
+    private String getPrefectureNameCached(String postalCode) {
+        String code = postalCode.replace("-", "");
+        
+        PostalCodeCache.Entry cached = postalCodeCache.get(code);
+        if (cached != null) {
+            if (cached.isStale()) {
+                scheduleRefresh(code);
+            }
+            return cached.getPrefectureName();
+        }
+        
+        return apiCalls.execute(code, () -> fetchAndCache(code));
+    }
+    
+    /**
+     * キャッシュの更新を裏で実行するよう予約する
+     * 
+     * @param code ハイフンを除いた郵便番号
+     */
+    private void scheduleRefresh(String code) {
+        if (!refreshing.add(code)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    apiCalls.execute(code, () -> fetchAndCache(code));
+                } catch (ExternalApiException e) {
+                    // 更新に失敗しても古い値は破棄期限まで使い続ける
+                    logger.debug("キャッシュの更新に失敗しました: {}", e.getMessage());
+                } finally {
+                    refreshing.remove(code);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 更新待ちが溜まっている場合は今回は更新しない（次の参照時に再度予約する）
+            refreshing.remove(code);
+            logger.debug("キャッシュの更新待ちが上限に達しています: {}", code);
+        }
+    }
+    
+    /**
+     * APIから都道府県名を取得し、結果をキャッシュする
+     * 
+     * @param code ハイフンを除いた郵便番号
+     * @return 都道府県名（APIで見つからなかった場合はnull）
+     */
+    private String fetchAndCache(String code) {
+        try {
+            String prefectureName = callApiGuarded(code);
+            postalCodeCache.putFound(code, prefectureName);
+            postalCodeCacheStore.enqueue(code, prefectureName);
+            return prefectureName;
+        } catch (ExternalApiException e) {
+            // 見つからなかった結果は短期間キャッシュする（通信エラーはキャッシュしない）
+            if (e.getCause() instanceof PostalCodeNotFoundException) {
+                postalCodeCache.putNotFound(code);
+                return null;
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * サーキットブレーカーと同時呼び出し数の上限の範囲内でAPIを呼び出す
+     * 
+     * @param code ハイフンを除いた郵便番号
+     * @return 都道府県名
+     * @throws ExternalApiRejectedException サーキットブレーカーが開いている、または上限に達していて呼び出さなかった場合
+     */
+    private String callApiGuarded(String code) {
+        // サーキットブレーカーが開いている間は待たずに拒否する
+        if (!circuitBreaker.tryAcquirePermission()) {
+            throw new ExternalApiRejectedException("郵便番号APIのサーキットブレーカーが開いています: " + code);
+        }
+        
+        boolean acquired;
+        try {
+            acquired = apiPermits.tryAcquire(apiPermitWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            circuitBreaker.releasePermission();
+            Thread.currentThread().interrupt();
+            throw new ExternalApiRejectedException("郵便番号API呼び出し待機中に割り込まれました: " + code, e);
+        }
+        if (!acquired) {
+            circuitBreaker.releasePermission();
+            throw new ExternalApiRejectedException("郵便番号APIの同時呼び出し数が上限に達しています: " + code);
+        }
+        
+        long start = System.nanoTime();
+        try {
+            String prefectureName = getPrefectureNameFromApi(code);
+            circuitBreaker.onSuccess(System.nanoTime() - start);
+            return prefectureName;
+        } catch (ExternalApiException e) {
+            // 通信エラー・HTTPエラーだけを失敗として数える（見つからなかった場合などはAPIが応答している）
+            if (e.getCause() instanceof RestClientException) {
+                circuitBreaker.onFailure(System.nanoTime() - start);
+            } else {
+                circuitBreaker.onSuccess(System.nanoTime() - start);
+            }
+            throw e;
+        } finally {
+            apiPermits.release();
+        }
+    }
+    
     /**
      * 郵便番号から都道府県名を取得（API使用）
      * 
@@ -83,7 +392,7 @@ public class PostalCodeService {
             
             // APIを呼び出し
             ResponseEntity<ZipCloudResponse> response = restTemplate.getForEntity(
-                ZIPCLOUD_API_URL + "?zipcode=" + code, 
+                apiUrl + "?zipcode=" + code, 
                 ZipCloudResponse.class
             );
             
@@ -165,24 +474,23 @@ public class PostalCodeService {
 //    }
     
     /**
-     * 郵便番号の上2桁から都道府県名を取得（フォールバック用）
+     * 郵便番号の上3桁から都道府県名を取得（フォールバック用）
+     * 
+     * 複数の都道府県にまたがる上3桁の場合は、大半を占める都道府県を返す。
      * 
      * @param postalCode 郵便番号
      * @return 都道府県名（取得できない場合はnull）
      */
     private String getPrefectureNameFromPrefix(String postalCode) {
-        // ハイフンを除去
-        String code = postalCode.replace("-", "");
+        int numericCode = PostalCodeIndex.parsePostalCode(postalCode);
         
-        // 郵便番号が7桁未満の場合はnullを返す
-        if (code.length() < 7) {
+        // 郵便番号が7桁の数字でない場合はnullを返す
+        if (numericCode < 0) {
             return null;
         }
         
-        // 上2桁を取得
-        String prefix = code.substring(0, 2);
         // 都道府県名を取得
-        return prefectureMap.get(prefix);
+        return PrefectureCodes.nameOf(PostalPrefixTable.likelyPrefectureCodeOf(numericCode));
     }
 }
 
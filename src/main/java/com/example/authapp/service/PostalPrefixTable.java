@@ -0,0 +1,113 @@
+package com.example.authapp.service;
+
+/**
+ * 郵便番号の上3桁から都道府県コードを引く表
+ *
+ * 上3桁（000〜999）を添字とする配列で、値は次のとおり。
+ * <ul>
+ *   <li>正の値: その上3桁はすべて同じ都道府県（都道府県コード）</li>
+ *   <li>負の値: 複数の都道府県にまたがる（符号を反転したものが大半を占める都道府県のコード）</li>
+ *   <li>0: 割り当てがない、または不明</li>
+ * </ul>
+ * 複数の都道府県にまたがるのは次の上3桁。
+ * 498（愛知県・三重県木曽岬町）、618（京都府・大阪府島本町）、684（鳥取県境港市・島根県隠岐郡）、
+ * 811（福岡県・長崎県壱岐市）、871（大分県・福岡県吉富町、上毛町）
+ */
+public final class PostalPrefixTable {
+
+    private static final byte[] TABLE = new byte[1000];
+
+    static {
+        range(1, 7, 1);       // 北海道（札幌市）
+        range(10, 19, 5);     // 秋田県
+        range(20, 29, 3);     // 岩手県
+        range(30, 39, 2);     // 青森県
+        range(40, 99, 1);     // 北海道
+        range(100, 208, 13);  // 東京都
+        range(210, 259, 14);  // 神奈川県
+        range(260, 299, 12);  // 千葉県
+        range(300, 319, 8);   // 茨城県
+        range(320, 329, 9);   // 栃木県
+        range(330, 369, 11);  // 埼玉県
+        range(370, 379, 10);  // 群馬県
+        range(380, 399, 20);  // 長野県
+        range(400, 409, 19);  // 山梨県
+        range(410, 439, 22);  // 静岡県
+        range(440, 498, 23);  // 愛知県
+        range(500, 509, 21);  // 岐阜県
+        range(510, 519, 24);  // 三重県
+        range(520, 529, 25);  // 滋賀県
+        range(530, 599, 27);  // 大阪府
+        range(600, 629, 26);  // 京都府
+        range(630, 639, 29);  // 奈良県
+        range(640, 649, 30);  // 和歌山県
+        range(650, 679, 28);  // 兵庫県
+        range(680, 689, 31);  // 鳥取県
+        range(685, 685, 32);  // 島根県（隠岐の島町）
+        range(690, 699, 32);  // 島根県
+        range(700, 719, 33);  // 岡山県
+        range(720, 739, 34);  // 広島県
+        range(740, 759, 35);  // 山口県
+        range(760, 769, 37);  // 香川県
+        range(770, 779, 36);  // 徳島県
+        range(780, 789, 39);  // 高知県
+        range(790, 799, 38);  // 愛媛県
+        range(800, 839, 40);  // 福岡県
+        range(817, 817, 42);  // 長崎県（対馬市）
+        range(840, 849, 41);  // 佐賀県
+        range(850, 859, 42);  // 長崎県
+        range(860, 869, 43);  // 熊本県
+        range(870, 879, 44);  // 大分県
+        range(880, 889, 45);  // 宮崎県
+        range(890, 899, 46);  // 鹿児島県
+        range(900, 907, 47);  // 沖縄県
+        range(910, 919, 18);  // 福井県
+        range(920, 929, 17);  // 石川県
+        range(930, 939, 16);  // 富山県
+        range(940, 959, 15);  // 新潟県
+        range(960, 979, 7);   // 福島県
+        range(980, 989, 4);   // 宮城県
+        range(990, 999, 6);   // 山形県
+
+        // 複数の都道府県にまたがる上3桁
+        ambiguous(498, 23);
+        ambiguous(618, 26);
+        ambiguous(684, 31);
+        ambiguous(811, 40);
+        ambiguous(871, 44);
+    }
+
+    private PostalPrefixTable() {
+    }
+
+    /**
+     * 上3桁だけで都道府県が決まる場合に、その都道府県コードを取得する
+     *
+     * @param postalCode 7桁の郵便番号を数値にしたもの
+     * @return 都道府県コード（複数の都道府県にまたがる場合や不明な場合は0）
+     */
+    public static int prefectureCodeOf(int postalCode) {
+        int value = TABLE[postalCode / 10000];
+        return value > 0 ? value : 0;
+    }
+
+    /**
+     * 上3桁から最も可能性の高い都道府県コードを取得する（フォールバック用）
+     *
+     * @param postalCode 7桁の郵便番号を数値にしたもの
+     * @return 都道府県コード（不明な場合は0）
+     */
+    public static int likelyPrefectureCodeOf(int postalCode) {
+        return Math.abs(TABLE[postalCode / 10000]);
+    }
+
+    private static void range(int from, int to, int prefectureCode) {
+        for (int prefix = from; prefix <= to; prefix++) {
+            TABLE[prefix] = (byte) prefectureCode;
+        }
+    }
+
+    private static void ambiguous(int prefix, int likelyPrefectureCode) {
+        TABLE[prefix] = (byte) -likelyPrefectureCode;
+    }
+}
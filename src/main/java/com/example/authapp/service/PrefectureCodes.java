@@ -0,0 +1,97 @@
+package com.example.authapp.service;
+
+/**
+ * 都道府県コード（JIS X 0401）と都道府県名の対応表
+ * 
+ * コードは1〜47、0は「不明」を表す。
+ * 都道府県名からコードへの変換は、起動時に求めた完全ハッシュ（衝突のないハッシュ表）で行う。
+ */
+public final class PrefectureCodes {
+    
+    // 都道府県コードの最大値
+    public static final int MAX_CODE = 47;
+    
+    // 都道府県コードを添字とする都道府県名（0番目は未使用）
+    private static final String[] NAMES = {
+        null,
+        "北海道", "青森県", "岩手県", "宮城県", "秋田県", "山形県", "福島県",
+        "茨城県", "栃木県", "群馬県", "埼玉県", "千葉県", "東京都", "神奈川県",
+        "新潟県", "富山県", "石川県", "福井県", "山梨県", "長野県", "岐阜県",
+        "静岡県", "愛知県", "三重県", "滋賀県", "京都府", "大阪府", "兵庫県",
+        "奈良県", "和歌山県", "鳥取県", "島根県", "岡山県", "広島県", "山口県",
+        "徳島県", "香川県", "愛媛県", "高知県", "福岡県", "佐賀県", "長崎県",
+        "熊本県", "大分県", "宮崎県", "鹿児島県", "沖縄県"
+    };
+    
+    // 完全ハッシュ表の大きさ（2のべき乗）
+    private static final int HASH_BITS = 7;
+    
+    // 完全ハッシュの乗数と、スロットごとの都道府県名・コード
+    private static final int HASH_MULTIPLIER;
+    private static final String[] NAMES_BY_SLOT = new String[1 << HASH_BITS];
+    private static final byte[] CODES_BY_SLOT = new byte[1 << HASH_BITS];
+    
+    static {
+        // 47件の都道府県名が衝突しない乗数を探す（数千回程度で見つかる）
+        int multiplier = 0x9E3779B9;
+        while (!isPerfect(multiplier)) {
+            multiplier += 2;
+        }
+        HASH_MULTIPLIER = multiplier;
+        for (int code = 1; code <= MAX_CODE; code++) {
+            int slot = slot(NAMES[code], multiplier);
+            NAMES_BY_SLOT[slot] = NAMES[code];
+            CODES_BY_SLOT[slot] = (byte) code;
+        }
+    }
+    
+    private PrefectureCodes() {
+    }
+    
+    /**
+     * 都道府県コードから都道府県名を取得する
+     * 
+     * @param code 都道府県コード（1〜47）
+     * @return 都道府県名（範囲外の場合はnull）
+     */
+    public static String nameOf(int code) {
+        if (code < 1 || code > MAX_CODE) {
+            return null;
+        }
+        return NAMES[code];
+    }
+    
+    /**
+     * 都道府県名から都道府県コードを取得する
+     * 
+     * @param name 都道府県名
+     * @return 都道府県コード（都道府県名でない場合は0）
+     */
+    public static int codeOf(String name) {
+        if (name == null) {
+            return 0;
+        }
+        int slot = slot(name, HASH_MULTIPLIER);
+        String candidate = NAMES_BY_SLOT[slot];
+        if (candidate == name || (candidate != null && candidate.equals(name))) {
+            return CODES_BY_SLOT[slot];
+        }
+        return 0;
+    }
+    
+    private static int slot(String name, int multiplier) {
+        return (name.hashCode() * multiplier) >>> (32 - HASH_BITS);
+    }
+    
+    private static boolean isPerfect(int multiplier) {
+        boolean[] used = new boolean[1 << HASH_BITS];
+        for (int code = 1; code <= MAX_CODE; code++) {
+            int slot = slot(NAMES[code], multiplier);
+            if (used[slot]) {
+                return false;
+            }
+            used[slot] = true;
+        }
+        return true;
+    }
+}
@@ -1,25 +1,206 @@
 package com.example.authapp.service;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import com.example.authapp.entity.Prefecture;
+import com.example.authapp.exception.InvalidParameterException;
+import com.example.authapp.repository.PrefectureRepository;
+
+/**
+ * 都道府県ごとの参照データ（平均家賃）
+ * 
+ * prefecturesテーブルの内容を都道府県コード（1〜47）を添字とする不変の配列に読み込んで保持する。
+ * 平均家賃の検索は配列の参照だけで行い、DBにはアクセスしない。
+ * 平均家賃を更新した場合は配列を作り直し、参照を丸ごと差し替える。
+ */
 @Service
 public class PrefectureService {
 
-	    static Integer getAverageRent(String prefecture) {
-	        return AVERAGE_RENT.get(prefecture);
-	    }
-	    
-	    private static final Map<String, Integer> AVERAGE_RENT = new HashMap<String, Integer>() {{
-	        put("北海道", 50000); // 北海道
-	        put("東京都", 80000); // 東京都
-	        put("大阪府", 60000); // 大阪府
-	        // TODO: 他の都道府県は後で追加する
-	        put("岐阜県", 60000); // 大阪府
-	    }};
+    private static final Logger logger = LoggerFactory.getLogger(PrefectureService.class);
+
+    // 平均家賃が登録されていないことを表す値
+    private static final int NO_RENT = -1;
+
+    private final PrefectureRepository prefectureRepository;
+
+    // 現在の参照データ（差し替えはreloadでのみ行う）
+    private volatile RentTable rentTable = new RentTable(emptyRents(), 0);
+
+    public PrefectureService(PrefectureRepository prefectureRepository) {
+        this.prefectureRepository = prefectureRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * 都道府県名から平均家賃を取得する
+     * 
+     * @param prefecture 都道府県名
+     * @return 平均家賃（登録されていない場合はnull）
+     */
+    public Integer getAverageRent(String prefecture) {
+        return rentTable.getAverageRent(PrefectureCodes.codeOf(prefecture));
+    }
+
+    /**
+     * 現在の参照データを取得する
+     * 
+     * 返した参照データは不変なので、一連の計算の間同じものを使い続けてよい。
+     */
+    public RentTable current() {
+        return rentTable;
+    }
+
+    /**
+     * prefecturesテーブルから参照データを読み込み直して差し替える
+     * 
+     * @return 差し替えた参照データ
+     */
+    public synchronized RentTable reload() {
+        int[] rents = emptyRents();
+        for (Prefecture prefecture : prefectureRepository.findAll()) {
+            int code = parseCode(prefecture.getCode());
+            if (code == 0) {
+                logger.warn("都道府県コードが不正なため無視します: {}", prefecture.getCode());
+                continue;
+            }
+            if (prefecture.getAverageRent() != null) {
+                rents[code] = prefecture.getAverageRent();
+            }
+        }
+        RentTable reloaded = new RentTable(rents, rentTable.getVersion() + 1);
+        rentTable = reloaded;
+        int registered = reloaded.countRegistered();
+        logger.info("都道府県の参照データを読み込みました - 版: {}, 平均家賃登録数: {}件",
+                    reloaded.getVersion(), registered);
+        if (registered < PrefectureCodes.MAX_CODE) {
+            logger.warn("平均家賃が未登録の都道府県が{}件あります。登録するまで生活費を計算できません"
+                        + "（POST /admin/prefectures/{code}/average-rent で登録）", PrefectureCodes.MAX_CODE - registered);
+        }
+        return reloaded;
+    }
+
+    /**
+     * 平均家賃を更新し、参照データを差し替える
+     * 
+     * @param code 都道府県コード（1〜47）
+     * @param averageRent 平均家賃（nullの場合は登録を取り消す）
+     * @return 差し替えた参照データ
+     */
+    public synchronized RentTable updateAverageRent(int code, Integer averageRent) {
+        String name = PrefectureCodes.nameOf(code);
+        if (name == null) {
+            throw new InvalidParameterException("都道府県コードが不正です: " + code);
+        }
+        if (averageRent != null && averageRent < 0) {
+            throw new InvalidParameterException("平均家賃は0以上で指定してください");
+        }
+        String codeText = String.format("%02d", code);
+        Prefecture prefecture = prefectureRepository.findByCode(codeText)
+            .orElseGet(() -> new Prefecture(codeText, name, null));
+        prefecture.setAverageRent(averageRent);
+        prefectureRepository.save(prefecture);
+        return reload();
+    }
+
+    /**
+     * 都道府県ごとの平均家賃の一覧（運用向け）
+     */
+    public List<Map<String, Object>> listAverageRents() {
+        RentTable table = rentTable;
+        List<Map<String, Object>> list = new ArrayList<>(PrefectureCodes.MAX_CODE);
+        for (int code = 1; code <= PrefectureCodes.MAX_CODE; code++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("code", code);
+            row.put("name", PrefectureCodes.nameOf(code));
+            row.put("averageRent", table.getAverageRent(code));
+            list.add(row);
+        }
+        return list;
+    }
+
+    private static int parseCode(String code) {
+        try {
+            int value = Integer.parseInt(code);
+            return PrefectureCodes.nameOf(value) == null ? 0 : value;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static int[] emptyRents() {
+        int[] rents = new int[PrefectureCodes.MAX_CODE + 1];
+        Arrays.fill(rents, NO_RENT);
+        return rents;
+    }
+
+    /**
+     * 都道府県コードを添字とする平均家賃の表（不変）
+     */
+    public static final class RentTable {
+
+        // 添字が都道府県コード、0は未使用
+        private final int[] rents;
+
+        // 読み込むたびに増える版数
+        private final long version;
+
+        private RentTable(int[] rents, long version) {
+            this.rents = rents;
+            this.version = version;
+        }
+
+        /**
+         * 都道府県コードから平均家賃を取得する
+         * 
+         * @param code 都道府県コード
+         * @return 平均家賃（登録されていない場合や不正なコードの場合はnull）
+         */
+        public Integer getAverageRent(int code) {
+            if (code <= 0 || code >= rents.length || rents[code] == NO_RENT) {
+                return null;
+            }
+            return rents[code];
+        }
 
-	}
+        /**
+         * 都道府県コードから平均家賃を取得する（一括計算用、オブジェクトを生成しない）
+         * 
+         * @param code 都道府県コード
+         * @return 平均家賃（登録されていない場合や不正なコードの場合は負の値）
+         */
+        int rentAt(int code) {
+            if (code <= 0 || code >= rents.length) {
+                return NO_RENT;
+            }
+            return rents[code];
+        }
 
+        public long getVersion() {
+            return version;
+        }
 
+        private int countRegistered() {
+            int count = 0;
+            for (int code = 1; code < rents.length; code++) {
+                if (rents[code] != NO_RENT) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+}
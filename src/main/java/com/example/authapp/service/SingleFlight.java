@@ -0,0 +1,70 @@
+package com.example.authapp.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * 同じキーに対する同時実行中の処理を1回にまとめる
+ *
+ * 最初に到着したスレッドだけが処理を実行し、実行中に到着した他のスレッドは
+ * その結果（または例外）を共有する。全体ロックは使わず、キーごとのFutureで待ち合わせる。
+ *
+ * @param <V> 処理結果の型
+ */
+public class SingleFlight<V> {
+
+    // 実行中の処理（キーごと）
+    private final ConcurrentMap<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 処理を実行する（同じキーの処理が実行中であればその結果を待つ）
+     *
+     * @param key キー
+     * @param loader 処理
+     * @return 処理結果
+     */
+    public V execute(String key, Supplier<V> loader) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            V value = loader.get();
+            created.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    /**
+     * 実行中の処理の件数
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // 実行したスレッドと同じ例外をそのまま投げる
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+-- 計算履歴の検索用インデックス
+-- 一覧は作成日時の降順・IDの降順に並べるため、絞り込みの列に続けて同じ順で持つ
+-- （並べ替えずに先頭から読めるため、LIMITの件数だけ読めば済む）
+
+-- ユーザーごとの履歴一覧
+-- user_idを降順にしているのは、外部キー用のインデックス（user_idの昇順）と区別させるため
+-- （H2は先頭の列の並び順まで同じ場合、並べ替えに使えるインデックスに切り替えない）
+CREATE INDEX IF NOT EXISTS idx_calculation_histories_user_created
+    ON calculation_histories (user_id DESC, created_at DESC, id DESC);
+
+-- ユーザーごとの履歴一覧を前のページ（新しい側）へ読む場合
+-- （H2はインデックスを逆順に読めないため、作成日時・IDが昇順のものを別に持つ）
+CREATE INDEX IF NOT EXISTS idx_calculation_histories_user_created_asc
+    ON calculation_histories (user_id DESC, created_at, id);
+
+-- 郵便番号での検索
+CREATE INDEX IF NOT EXISTS idx_calculation_histories_postal_created
+    ON calculation_histories (postal_code, created_at DESC, id DESC);
+
+-- 年収の範囲での検索
+CREATE INDEX IF NOT EXISTS idx_calculation_histories_annual_income
+    ON calculation_histories (annual_income);
@@ -0,0 +1,9 @@
+-- ユーザーごとの計算履歴の件数
+-- 履歴一覧の総件数を毎回COUNT(*)で数えず、履歴を保存するときに同じトランザクションで加算する
+-- （Userエンティティには対応付けず、CalculationHistoryKensakuRepositoryだけが読み書きする）
+ALTER TABLE users ADD COLUMN IF NOT EXISTS history_count BIGINT DEFAULT 0 NOT NULL;
+
+-- 既存の履歴の件数を設定する
+UPDATE users U SET history_count = (
+    SELECT COUNT(*) FROM calculation_histories A WHERE A.user_id = U.id
+);
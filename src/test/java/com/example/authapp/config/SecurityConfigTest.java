@@ -0,0 +1,92 @@
+package com.example.authapp.config;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrlPattern;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * JSON API（/api/**）はHTTP Basic認証・CSRFトークンなしで呼び出せ、画面は従来どおりフォームログインとCSRFで保護されることを確認する
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:security_config_test;DB_CLOSE_DELAY=-1",
+    "postal.index.binary-location=target/security-config-test/postal_codes.bin"
+})
+@AutoConfigureMockMvc
+class SecurityConfigTest {
+
+    private static final String RESOLVE_BODY = "{\"postalCodes\":[\"1000001\"]}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void APIはHTTP_Basic認証だけで呼び出せてセッションを作らない() throws Exception {
+        mockMvc.perform(post("/api/postal-codes/resolve")
+                .with(httpBasic("user", "user123"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(RESOLVE_BODY))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.results[0].prefecture").value("東京都"))
+            .andExpect(request().sessionAttributeDoesNotExist("SPRING_SECURITY_CONTEXT"))
+            .andExpect(header().doesNotExist("Set-Cookie"));
+    }
+
+    @Test
+    void APIは認証されていなければログイン画面に転送せず401を返す() throws Exception {
+        mockMvc.perform(post("/api/postal-codes/resolve")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(RESOLVE_BODY))
+            .andExpect(status().isUnauthorized())
+            .andExpect(header().string("WWW-Authenticate", containsString("Basic")));
+
+        mockMvc.perform(post("/api/living-cost/batch")
+                .with(httpBasic("user", "wrong-password"))
+                .contentType("text/csv")
+                .content("postal_code,annual_income\n1000001,5000000\n"))
+            .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void APIの一括計算はCSRFトークンなしで呼び出せる() throws Exception {
+        // 計算結果は非同期に書き出す
+        MvcResult result = mockMvc.perform(post("/api/living-cost/batch")
+                .with(httpBasic("user", "user123"))
+                .contentType("text/csv")
+                .content("postal_code,annual_income\n1000001,5000000\n"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().string(containsString("1000001,5000000,東京都")));
+    }
+
+    @Test
+    void 画面はフォームログインとCSRFトークンで保護したまま() throws Exception {
+        mockMvc.perform(get("/living-cost/calculate"))
+            .andExpect(status().isFound())
+            .andExpect(redirectedUrlPattern("**/login"));
+
+        // HTTP Basic認証は画面では受け付けず、CSRFトークンのないPOSTも拒否する
+        mockMvc.perform(post("/living-cost/calculate")
+                .with(httpBasic("user", "user123"))
+                .param("postalCode", "1000001")
+                .param("annualIncome", "5000000"))
+            .andExpect(status().isForbidden());
+    }
+}
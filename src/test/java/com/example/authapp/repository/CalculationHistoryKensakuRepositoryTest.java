@@ -0,0 +1,298 @@
+package com.example.authapp.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.authapp.dto.CalculationHistoryCursor;
+import com.example.authapp.dto.CalculationHistoryView;
+import com.example.authapp.entity.CalculationHistory;
+import com.example.authapp.entity.User;
+
+/**
+ * 計算履歴の検索・保存で実際に発行されるSQL文を確認する
+ *
+ * H2のインメモリDBにスキーマの移行（インデックス）まで適用した状態で、Hibernateが準備したSQL文を記録して調べる。
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:calculation_history_repository_test;DB_CLOSE_DELAY=-1",
+    "postal.index.binary-location=target/calculation-history-repository-test/postal_codes.bin",
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.example.authapp.repository.RecordingStatementInspector"
+})
+class CalculationHistoryKensakuRepositoryTest {
+
+    // spring.jpa.properties.hibernate.jdbc.batch_size
+    private static final int BATCH_SIZE = 50;
+
+    @Autowired
+    private CalculationHistoryKensakuRepository repository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // 検索でクエリの作成に使ったSQL文を記録するEntityManager
+    private EntityManager recordingEntityManager;
+
+    @Test
+    void まとめて保存するとバッチサイズごとに1回のINSERTで書き込む() {
+        User user = userRepository.findByUsername("user").get();
+        long countBefore = repository.countByUser(user);
+        int rows = BATCH_SIZE * 2 + 20;
+        List<CalculationHistory> histories = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            histories.add(newHistory(user, "1000001", 5000000 + i));
+        }
+
+        RecordingStatementInspector.clear();
+        repository.saveAll(histories);
+        List<String> statements = RecordingStatementInspector.statements();
+
+        // IDENTITYで採番していた場合は1行ごとにINSERTを準備する（120回）
+        assertEquals(3, count(statements, "insert into calculation_histories"), String.join("\n", statements));
+        // IDはシーケンスからまとめて払い出す（50件ごとに1回程度）
+        long sequenceCalls = count(statements, CalculationHistory.ID_SEQUENCE_NAME);
+        assertTrue(sequenceCalls <= rows / CalculationHistory.ID_ALLOCATION_SIZE + 2, "シーケンス呼び出し: " + sequenceCalls);
+        // ユーザーごとの件数はまとめて1回加算する
+        assertEquals(1, count(statements, "UPDATE users SET history_count"));
+        assertEquals(countBefore + rows, repository.countByUser(user));
+    }
+
+    @Test
+    void 検索はV1で追加したインデックスを並べ替えずに読む() {
+        User user = userRepository.findByUsername("user").get();
+        List<CalculationHistory> histories = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            histories.add(newHistory(user, i % 2 == 0 ? "1000001" : "4980001", 3000000 + i * 10000));
+        }
+        repository.saveAll(histories);
+
+        String plan = explain(() -> repository.searchByOffset(user, null, null, null, 0, 20),
+            user.getId(), 20, 0L);
+        assertUsesIndex(plan, "IDX_CALCULATION_HISTORIES_USER_CREATED", true);
+
+        CalculationHistoryView first = repository.searchByOffset(user, null, null, null, 0, 1).get(0);
+        CalculationHistoryCursor cursor = CalculationHistoryCursor.of(first);
+        plan = explain(() -> repository.searchByCursor(user, null, null, null, cursor, false, 20),
+            user.getId(), cursor.getCreatedAt(), cursor.getCreatedAt(), cursor.getCreatedAt(), cursor.getId(), 20);
+        assertUsesIndex(plan, "IDX_CALCULATION_HISTORIES_USER_CREATED", true);
+        plan = explain(() -> repository.searchByCursor(user, null, null, null, cursor, true, 20),
+            user.getId(), cursor.getCreatedAt(), cursor.getCreatedAt(), cursor.getCreatedAt(), cursor.getId(), 20);
+        assertUsesIndex(plan, "IDX_CALCULATION_HISTORIES_USER_CREATED_ASC", true);
+
+        plan = explain(() -> repository.searchByOffset(null, "4980001", null, null, 0, 20),
+            "4980001", 20, 0L);
+        assertUsesIndex(plan, "IDX_CALCULATION_HISTORIES_POSTAL_CREATED", true);
+
+        // 年収の範囲は並べ替えが必要だが、範囲内の行だけを読む
+        plan = explain(() -> repository.searchByOffset(null, null, 4000000, 4100000, 0, 20),
+            4000000, 4100000, 20, 0L);
+        assertUsesIndex(plan, "IDX_CALCULATION_HISTORIES_ANNUAL_INCOME", false);
+    }
+
+    @Test
+    void 同じ条件の検索は組み立て済みの同じSQL文を使い条件どおりの履歴を返す() throws Exception {
+        User user = userRepository.findByUsername("user").get();
+        User admin = userRepository.findByUsername("admin").get();
+        List<CalculationHistory> histories = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            histories.add(newHistory(i % 3 == 0 ? admin : user, i % 2 == 0 ? "1000001" : "4980001",
+                2000000 + i * 100000));
+        }
+        repository.saveAll(histories);
+
+        // すべての履歴を新しい順に読み、期待する結果はJavaで絞り込む
+        List<Row> all = jdbcTemplate.query(
+            "SELECT id, user_id, postal_code, annual_income, created_at FROM calculation_histories"
+                + " ORDER BY created_at DESC, id DESC",
+            (rs, rowNum) -> new Row(rs.getLong("id"), rs.getLong("user_id"), rs.getString("postal_code"),
+                rs.getInt("annual_income"), rs.getObject("created_at", LocalDateTime.class)));
+        Row middle = all.get(all.size() / 2);
+
+        // クエリの作成に使ったSQL文を記録する（検索は実際のEntityManagerで行う）
+        CalculationHistoryKensakuRepository target = AopTestUtils.getTargetObject(repository);
+        EntityManager entityManager = (EntityManager) ReflectionTestUtils.getField(target, "entityManager");
+        recordingEntityManager = mock(EntityManager.class, AdditionalAnswers.delegatesTo(entityManager));
+        ReflectionTestUtils.setField(target, "entityManager", recordingEntityManager);
+        try {
+            assertSearches(user, all, middle);
+        } finally {
+            ReflectionTestUtils.setField(target, "entityManager", entityManager);
+        }
+    }
+
+    private void assertSearches(User user, List<Row> all, Row middle) throws ReflectiveOperationException {
+        CalculationHistoryCursor cursor = new CalculationHistoryCursor(middle.createdAt, middle.id);
+        String[] offsetSql = prebuilt("OFFSET_SQL");
+        String[] viewOffsetSql = prebuilt("VIEW_OFFSET_SQL");
+        String[][] viewCursorSql = prebuilt("VIEW_CURSOR_SQL");
+        String[] countSql = prebuilt("COUNT_SQL");
+
+        for (int conditions = 0; conditions < 16; conditions++) {
+            User u = (conditions & 1) != 0 ? user : null;
+            String postalCode = (conditions & 2) != 0 ? "1000001" : null;
+            Integer min = (conditions & 4) != 0 ? 3000000 : null;
+            Integer max = (conditions & 8) != 0 ? 5000000 : null;
+            String label = "条件 " + conditions;
+            List<Long> matched = all.stream()
+                .filter(row -> (u == null || row.userId == u.getId())
+                    && (postalCode == null || row.postalCode.equals(postalCode))
+                    && (min == null || row.annualIncome >= min)
+                    && (max == null || row.annualIncome <= max))
+                .map(row -> row.id)
+                .collect(Collectors.toList());
+            List<Long> older = all.subList(all.indexOf(middle) + 1, all.size()).stream()
+                .map(row -> row.id).filter(matched::contains).collect(Collectors.toList());
+            List<Long> newer = all.subList(0, all.indexOf(middle)).stream()
+                .map(row -> row.id).filter(matched::contains).collect(Collectors.toList());
+
+            List<Long> ids = assertPrepares(viewOffsetSql[conditions], label,
+                () -> ids(repository.searchByOffset(u, postalCode, min, max, 5L, 10)));
+            assertEquals(page(matched, 5, 10), ids, label);
+
+            ids = assertPrepares(offsetSql[conditions], label,
+                () -> repository.searchByConditions(u, postalCode, min, max, 1, 10).stream()
+                    .map(CalculationHistory::getId).collect(Collectors.toList()));
+            assertEquals(page(matched, 10, 10), ids, label);
+
+            // 位置を指定しない場合は先頭（最も新しい側）または末尾（最も古い側）から読む
+            ids = assertPrepares(viewCursorSql[conditions][0], label,
+                () -> ids(repository.searchByCursor(u, postalCode, min, max, null, false, 10)));
+            assertEquals(page(matched, 0, 10), ids, label);
+            ids = assertPrepares(viewCursorSql[conditions][1], label,
+                () -> ids(repository.searchByCursor(u, postalCode, min, max, null, true, 10)));
+            assertEquals(last(matched, 10), ids, label);
+            ids = assertPrepares(viewCursorSql[conditions][2], label,
+                () -> ids(repository.searchByCursor(u, postalCode, min, max, cursor, false, 10)));
+            assertEquals(page(older, 0, 10), ids, label);
+            ids = assertPrepares(viewCursorSql[conditions][3], label,
+                () -> ids(repository.searchByCursor(u, postalCode, min, max, cursor, true, 10)));
+            assertEquals(last(newer, 10), ids, label);
+
+            // ユーザーだけで絞り込む場合はCOUNT(*)ではなくユーザーごとの件数を読む
+            long count = conditions == 1
+                ? repository.countByConditions(u, postalCode, min, max)
+                : assertPrepares(countSql[conditions], label,
+                    () -> repository.countByConditions(u, postalCode, min, max));
+            assertEquals(matched.size(), count, label);
+        }
+
+        // 空の郵便番号は指定なしとして扱う
+        assertPrepares(viewOffsetSql[0], "空の郵便番号",
+            () -> repository.searchByOffset(null, "", null, null, 0L, 10));
+    }
+
+    /**
+     * 検索で発行したSQL文を、同じパラメータでEXPLAINした実行計画を返す
+     */
+    private String explain(Runnable search, Object... parameters) {
+        RecordingStatementInspector.clear();
+        search.run();
+        List<String> statements = RecordingStatementInspector.statements();
+        String sql = statements.get(statements.size() - 1);
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parameters);
+    }
+
+    private static void assertUsesIndex(String plan, String index, boolean sorted) {
+        assertTrue(plan.contains("PUBLIC." + index + ":"), plan);
+        assertEquals(sorted, plan.contains("/* index sorted */"), plan);
+    }
+
+    private static long count(List<String> statements, String fragment) {
+        return statements.stream().filter(sql -> sql.contains(fragment)).count();
+    }
+
+    /**
+     * 同じ検索を2回実行し、どちらも組み立て済みの同じSQL文（同じ文字列のインスタンス）でクエリを作成したことを確認する
+     *
+     * 2回目はHibernateのクエリプランキャッシュから解析済みのSQL文を使うため、JDBCに渡す文字列も1回目と同じものになる。
+     *
+     * @return 2回目の検索結果
+     */
+    private <T> T assertPrepares(String prebuiltSql, String label, Supplier<T> search) {
+        T result = null;
+        List<String> prepared = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            clearInvocations(recordingEntityManager);
+            RecordingStatementInspector.clear();
+            result = search.get();
+            List<Object> created = mockingDetails(recordingEntityManager).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("createNativeQuery"))
+                .map(invocation -> invocation.getArgument(0))
+                .collect(Collectors.toList());
+            assertEquals(1, created.size(), label);
+            assertSame(prebuiltSql, created.get(0), label);
+            prepared.addAll(RecordingStatementInspector.statements());
+        }
+        assertEquals(2, prepared.size(), label);
+        assertSame(prepared.get(0), prepared.get(1), label);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T prebuilt(String fieldName) throws ReflectiveOperationException {
+        Field field = CalculationHistoryKensakuRepository.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        return (T) field.get(null);
+    }
+
+    private static List<Long> ids(List<CalculationHistoryView> views) {
+        return views.stream().map(CalculationHistoryView::getId).collect(Collectors.toList());
+    }
+
+    private static List<Long> page(List<Long> ids, int offset, int limit) {
+        return ids.subList(Math.min(offset, ids.size()), Math.min(offset + limit, ids.size()));
+    }
+
+    private static List<Long> last(List<Long> ids, int limit) {
+        return ids.subList(Math.max(0, ids.size() - limit), ids.size());
+    }
+
+    private static CalculationHistory newHistory(User user, String postalCode, int annualIncome) {
+        return new CalculationHistory(user, postalCode, "東京都", annualIncome,
+            80000, 9600, 49999, 4000, 20833, 164432, 1973184);
+    }
+
+    /**
+     * 期待する結果を求めるために読んだ計算履歴の1行
+     */
+    private static final class Row {
+
+        private final long id;
+        private final long userId;
+        private final String postalCode;
+        private final int annualIncome;
+        private final LocalDateTime createdAt;
+
+        Row(long id, long userId, String postalCode, int annualIncome, LocalDateTime createdAt) {
+            this.id = id;
+            this.userId = userId;
+            this.postalCode = postalCode;
+            this.annualIncome = annualIncome;
+            this.createdAt = createdAt;
+        }
+    }
+}
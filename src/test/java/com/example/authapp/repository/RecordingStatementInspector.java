@@ -0,0 +1,45 @@
+package com.example.authapp.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernateが準備したSQL文を記録する（テスト用）
+ *
+ * JDBCバッチでは同じSQL文を1回準備して複数行分を送るため、準備した回数がバッチの回数になる。
+ * hibernate.session_factory.statement_inspector に指定して使う。
+ */
+public class RecordingStatementInspector implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final List<String> statements = new ArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        synchronized (statements) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+
+    /**
+     * 記録したSQL文を消す
+     */
+    public static void clear() {
+        synchronized (statements) {
+            statements.clear();
+        }
+    }
+
+    /**
+     * 記録したSQL文（準備した順）
+     */
+    public static List<String> statements() {
+        synchronized (statements) {
+            return new ArrayList<>(statements);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.authapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import com.example.authapp.entity.CalculationHistory;
+import com.example.authapp.entity.User;
+import com.example.authapp.repository.CalculationHistoryKensakuRepository;
+import com.example.authapp.repository.UserRepository;
+
+/**
+ * 計算履歴の非同期書き込みで、保存に失敗した場合の動作を確認する
+ */
+class CalculationHistoryWriterTest {
+
+    private final CalculationHistoryKensakuRepository repository = mock(CalculationHistoryKensakuRepository.class);
+
+    private CalculationHistoryWriter writer;
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void トランザクションを開始できなくても履歴を失わず定期的な書き込みを続ける() throws Exception {
+        // 1回目はトランザクションの開始に失敗する（DataAccessExceptionではない）
+        AtomicInteger calls = new AtomicInteger();
+        List<Long> idsOnSave = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<CalculationHistory> batch = invocation.getArgument(0);
+            if (calls.incrementAndGet() == 1) {
+                // 採番した後に失敗した場合を再現する
+                batch.forEach(history -> history.setId(1L));
+                throw new CannotCreateTransactionException("接続を取得できません");
+            }
+            batch.forEach(history -> idsOnSave.add(history.getId()));
+            return null;
+        }).when(repository).saveAll(anyList());
+
+        writer = newWriter();
+        writer.start();
+        for (int i = 0; i < 3; i++) {
+            writer.submit(newHistory());
+        }
+
+        waitUntilWritten(3);
+        assertEquals(3L, writer.stats().get("written"));
+        assertEquals(0L, writer.stats().get("failed"));
+        // 再試行では新規作成し直す
+        assertEquals(3, idsOnSave.size());
+        idsOnSave.forEach(id -> assertEquals(null, id));
+
+        // 失敗の後も定期的な書き込みが続いている
+        writer.submit(newHistory());
+        waitUntilWritten(4);
+    }
+
+    @Test
+    void 最大回数まで失敗した履歴は失敗件数に数えて後続の履歴を書き込む() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (calls.incrementAndGet() <= 3) {
+                throw new IllegalStateException("保存できません");
+            }
+            return null;
+        }).when(repository).saveAll(anyList());
+
+        writer = newWriter();
+        writer.start();
+        writer.submit(newHistory());
+        writer.submit(newHistory());
+
+        waitUntil(() -> (Long) writer.stats().get("failed") == 2L);
+        writer.submit(newHistory());
+        waitUntilWritten(1);
+    }
+
+    @Test
+    void 一度失敗しても書き込めた後は退避ファイルを空にし再起動で重複して書き込まない() throws Exception {
+        // 保存した年収（DBの代わり）
+        List<Integer> saved = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("一時的に保存できません");
+            }
+            List<CalculationHistory> batch = invocation.getArgument(0);
+            batch.forEach(history -> saved.add(history.getAnnualIncome()));
+            return null;
+        }).when(repository).saveAll(anyList());
+        Path spillFile = tempDir.resolve("history.spill");
+
+        writer = newWriter(spillFile);
+        writer.start();
+        for (int i = 1; i <= 3; i++) {
+            writer.submit(newHistory(i));
+        }
+        waitUntilWritten(3);
+        writer.submit(newHistory(4));
+        writer.submit(newHistory(5));
+        waitUntilWritten(5);
+        waitUntil(() -> spillFileSize(spillFile) == 0);
+        writer.stop();
+
+        writer = newWriter(spillFile);
+        writer.start();
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), saved);
+    }
+
+    @Test
+    void 起動時は退避ファイルの書き込み済みの履歴を読み飛ばす() throws Exception {
+        List<Integer> saved = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            List<CalculationHistory> batch = invocation.getArgument(0);
+            batch.forEach(history -> saved.add(history.getAnnualIncome()));
+            return null;
+        }).when(repository).saveAll(anyList());
+
+        // 2件目まで書き込んだ後、3件目の途中で異常終了した退避ファイル
+        Path spillFile = tempDir.resolve("history.spill");
+        Files.write(spillFile, Arrays.asList(
+            spillLine(1), spillLine(2), "#saved\t2", spillLine(3), spillLine(4), "5\t1\t1000001"),
+            StandardCharsets.UTF_8);
+
+        writer = newWriter(spillFile);
+        writer.start();
+        assertEquals(Arrays.asList(3, 4), saved);
+        assertEquals(0, spillFileSize(spillFile));
+        writer.stop();
+
+        // 通し番号のない形式の行はすべて書き込む
+        saved.clear();
+        Files.write(spillFile, Collections.singletonList(spillLine(6).substring(2)), StandardCharsets.UTF_8);
+        writer = newWriter(spillFile);
+        writer.start();
+        assertEquals(Collections.singletonList(6), saved);
+    }
+
+    private CalculationHistoryWriter newWriter() {
+        return new CalculationHistoryWriter(repository, mock(UserRepository.class),
+            100, 10, 20, CalculationHistoryWriter.Backpressure.CALLER_RUNS, 1000, "");
+    }
+
+    private CalculationHistoryWriter newWriter(Path spillFile) {
+        return new CalculationHistoryWriter(repository, mock(UserRepository.class),
+            100, 10, 20, CalculationHistoryWriter.Backpressure.CALLER_RUNS, 1000, spillFile.toString());
+    }
+
+    private static CalculationHistory newHistory() {
+        return newHistory(5000000);
+    }
+
+    private static CalculationHistory newHistory(int annualIncome) {
+        User user = new User();
+        user.setId(1L);
+        return new CalculationHistory(user, "1000001", "東京都", annualIncome,
+            80000, 9600, 49999, 4000, 20833, 164432, 1973184);
+    }
+
+    // 通し番号（1桁）と、年収をannualIncomeにした履歴の行
+    private static String spillLine(int annualIncome) {
+        return annualIncome + "\t1\t1000001\t東京都\t" + annualIncome
+            + "\t80000\t9600\t49999\t4000\t20833\t164432\t1973184\t1\t2026-01-01T12:00";
+    }
+
+    private static long spillFileSize(Path spillFile) {
+        try {
+            return Files.size(spillFile);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private void waitUntilWritten(long expected) throws InterruptedException {
+        waitUntil(() -> (Long) writer.stats().get("written") >= expected);
+        assertEquals(expected, writer.stats().get("written"));
+    }
+
+    private static void waitUntil(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("時間内に条件を満たしませんでした");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
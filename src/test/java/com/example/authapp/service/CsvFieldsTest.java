@@ -0,0 +1,25 @@
+package com.example.authapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * CSVの項目の書き出しを確認する
+ */
+class CsvFieldsTest {
+
+    @Test
+    void 区切り文字や引用符や改行を含む項目だけ引用符で囲む() {
+        assertEquals("東京都", append("東京都"));
+        assertEquals("", append(null));
+        assertEquals("\"a,b\"", append("a,b"));
+        assertEquals("\"a\"\"b\"", append("a\"b"));
+        assertEquals("\"a\nb\"", append("a\nb"));
+        assertEquals("\"a\rb\"", append("a\rb"));
+    }
+
+    private static String append(String value) {
+        return CsvFields.appendField(new StringBuilder(), value).toString();
+    }
+}
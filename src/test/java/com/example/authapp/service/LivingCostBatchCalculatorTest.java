@@ -0,0 +1,159 @@
+package com.example.authapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.authapp.dto.LivingCostBreakdown;
+import com.example.authapp.entity.CalculationRuleSet;
+import com.example.authapp.entity.Prefecture;
+import com.example.authapp.repository.PrefectureRepository;
+
+/**
+ * 列形式の一括計算の結果が、1行ずつ {@link CalculationPlan#calculate} で計算した結果と完全に一致することを確認する
+ *
+ * 年収・都道府県コード・平均家賃・ルールセットを乱数で作り、ForkJoinで分割しない件数と分割する件数の両方で比較する。
+ * 失敗した場合に同じ入力で再現できるよう、乱数の種は固定する。
+ */
+class LivingCostBatchCalculatorTest {
+
+    // 分割の境目を確認しやすいよう小さくする
+    private static final int THRESHOLD = 64;
+
+    // 一括計算で受け付ける年収の上限（1億円）
+    private static final int MAX_ANNUAL_INCOME = 100000000;
+
+    @Test
+    void 分割しない件数では1行ずつの計算と一致する() {
+        Random random = new Random(20261018L);
+        LivingCostBatchCalculator calculator = new LivingCostBatchCalculator(THRESHOLD);
+        for (int trial = 0; trial < 50; trial++) {
+            int count = 1 + random.nextInt(THRESHOLD);
+            assertSameAsPlan(calculator, random, count);
+        }
+        // 0件
+        assertSameAsPlan(calculator, random, 0);
+    }
+
+    @Test
+    void 分割する件数では1行ずつの計算と一致する() {
+        Random random = new Random(20261019L);
+        LivingCostBatchCalculator calculator = new LivingCostBatchCalculator(THRESHOLD);
+        // しきい値のちょうど1件上と、何段にも分割される件数
+        assertSameAsPlan(calculator, random, THRESHOLD + 1);
+        for (int trial = 0; trial < 20; trial++) {
+            int count = THRESHOLD + 1 + random.nextInt(THRESHOLD * 200);
+            assertSameAsPlan(calculator, random, count);
+        }
+    }
+
+    @Test
+    void 既定のしきい値を超える件数では1行ずつの計算と一致する() {
+        Random random = new Random(20261020L);
+        LivingCostBatchCalculator calculator = new LivingCostBatchCalculator(8192);
+        assertSameAsPlan(calculator, random, 8192);
+        assertSameAsPlan(calculator, random, 100000);
+    }
+
+    /**
+     * 乱数で作った入力をcount行分計算し、1行ずつ計算した結果と比べる
+     *
+     * 列は行数より大きく確保し、count行より後ろに書き込んでいないことも確認する。
+     */
+    private static void assertSameAsPlan(LivingCostBatchCalculator calculator, Random random, int count) {
+        int capacity = count + 1 + random.nextInt(16);
+        int[] annualIncomes = new int[capacity];
+        byte[] prefectureCodes = new byte[capacity];
+        for (int i = 0; i < capacity; i++) {
+            annualIncomes[i] = randomIncome(random);
+            // 0（不明）と範囲外のコードも含める
+            prefectureCodes[i] = (byte) random.nextInt(PrefectureCodes.MAX_CODE + 3);
+        }
+        PrefectureService.RentTable rentTable = randomRentTable(random);
+        CalculationPlan plan = randomPlan(random);
+
+        LivingCostColumns out = new LivingCostColumns(capacity);
+        calculator.calculate(annualIncomes, prefectureCodes, count, rentTable, plan, out);
+
+        for (int i = 0; i < count; i++) {
+            Integer averageRent = rentTable.getAverageRent(prefectureCodes[i]);
+            String row = "行: " + i + ", 年収: " + annualIncomes[i] + ", 都道府県コード: " + prefectureCodes[i]
+                + ", 件数: " + count;
+            if (averageRent == null) {
+                assertFalse(out.hasResult(i), row);
+                assertNoResult(out, i, row);
+                continue;
+            }
+            LivingCostBreakdown expected = plan.calculate(averageRent, annualIncomes[i]);
+            assertEquals(expected.getMonthlyRent(), out.getMonthlyRent()[i], row);
+            assertEquals(expected.getMonthlyUtilities(), out.getMonthlyUtilities()[i], row);
+            assertEquals(expected.getMonthlyFood(), out.getMonthlyFood()[i], row);
+            assertEquals(expected.getMonthlyCommunication(), out.getMonthlyCommunication()[i], row);
+            assertEquals(expected.getMonthlyOthers(), out.getMonthlyOthers()[i], row);
+            assertEquals(expected.getMonthlyTotal(), out.getMonthlyTotal()[i], row);
+            assertEquals(expected.getAnnualTotal(), out.getAnnualTotal()[i], row);
+        }
+        // 計算しない行は初期値のまま
+        for (int i = count; i < capacity; i++) {
+            assertEquals(0, out.getMonthlyRent()[i], "行: " + i + ", 件数: " + count);
+            assertEquals(0, out.getAnnualTotal()[i], "行: " + i + ", 件数: " + count);
+        }
+    }
+
+    private static void assertNoResult(LivingCostColumns out, int i, String row) {
+        assertEquals(LivingCostColumns.NO_RESULT, out.getMonthlyRent()[i], row);
+        assertEquals(LivingCostColumns.NO_RESULT, out.getMonthlyUtilities()[i], row);
+        assertEquals(LivingCostColumns.NO_RESULT, out.getMonthlyFood()[i], row);
+        assertEquals(LivingCostColumns.NO_RESULT, out.getMonthlyCommunication()[i], row);
+        assertEquals(LivingCostColumns.NO_RESULT, out.getMonthlyOthers()[i], row);
+        assertEquals(LivingCostColumns.NO_RESULT, out.getMonthlyTotal()[i], row);
+        assertEquals(LivingCostColumns.NO_RESULT, out.getAnnualTotal()[i], row);
+    }
+
+    /**
+     * 1円〜1億円の年収（端数の出やすい小さい値と上限付近も含める）
+     */
+    private static int randomIncome(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return 1 + random.nextInt(1000);
+            case 1:
+                return MAX_ANNUAL_INCOME - random.nextInt(1000);
+            default:
+                return 1 + random.nextInt(MAX_ANNUAL_INCOME);
+        }
+    }
+
+    /**
+     * 一部の都道府県だけ平均家賃を登録した参照データ
+     */
+    private static PrefectureService.RentTable randomRentTable(Random random) {
+        List<Prefecture> prefectures = new ArrayList<>();
+        for (int code = 1; code <= PrefectureCodes.MAX_CODE; code++) {
+            if (random.nextInt(5) == 0) {
+                continue;
+            }
+            prefectures.add(new Prefecture(String.format("%02d", code), PrefectureCodes.nameOf(code),
+                random.nextInt(200001)));
+        }
+        PrefectureRepository repository = mock(PrefectureRepository.class);
+        when(repository.findAll()).thenReturn(prefectures);
+        return new PrefectureService(repository).reload();
+    }
+
+    /**
+     * 0〜100%の率と0〜50000円の通信費を持つルールセット
+     */
+    private static CalculationPlan randomPlan(Random random) {
+        return CalculationPlan.compile(new CalculationRuleSet(1 + random.nextInt(100),
+            random.nextInt(101), random.nextInt(101), random.nextInt(101), random.nextInt(101),
+            random.nextInt(50001), true));
+    }
+}
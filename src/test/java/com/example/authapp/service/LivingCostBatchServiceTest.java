@@ -0,0 +1,52 @@
+package com.example.authapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 生活費の一括計算で、入力の行が出力から失われないことを確認する
+ */
+class LivingCostBatchServiceTest {
+
+    private static final String HEADER = "postal_code,annual_income,prefecture,monthly_rent,monthly_utilities,"
+        + "monthly_food,monthly_communication,monthly_others,monthly_total,annual_total,error";
+
+    private final LivingCostBatchService service = new LivingCostBatchService(
+        mock(PostalCodeService.class), mock(PrefectureService.class), mock(CalculationRuleService.class),
+        mock(LivingCostBatchCalculator.class), 100);
+
+    @Test
+    void 見出し行は読み飛ばす() throws IOException {
+        assertEquals(HEADER + "\n"
+                + "1000001,,,,,,,,,,年収が数値ではありません\n",
+            calculate("postal_code,annual_income\n1000001,abc\n"));
+        assertEquals(HEADER + "\n", calculate("郵便番号,年収\n"));
+    }
+
+    @Test
+    void 一行目の不正な行は見出し行とみなさずエラーを出力する() throws IOException {
+        assertEquals(HEADER + "\n"
+                + "1000001,,,,,,,,,,年収が数値ではありません\n",
+            calculate("1000001,abc\n"));
+        // ハイフン付きの郵便番号（出力ではハイフンを除く）
+        assertEquals(HEADER + "\n"
+                + "1000001,,,,,,,,,,年収が数値ではありません\n",
+            calculate("100-0001,年収\n"));
+        assertEquals(HEADER + "\n"
+                + "abc,200000000,,,,,,,,,年収は1円以上1億円以下で指定してください\n",
+            calculate("abc,200000000\n"));
+    }
+
+    private String calculate(String input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        service.calculateCsv(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output);
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.authapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.authapp.entity.User;
+import com.example.authapp.exception.PostalCodeNotFoundException;
+
+/**
+ * 都道府県が決まらない郵便番号を、平均家賃の未登録ではなく郵便番号の誤りとして扱うことを確認する
+ */
+class LivingCostServiceTest {
+
+    private final PostalCodeService postalCodeService = mock(PostalCodeService.class);
+    private final PrefectureService prefectureService = mock(PrefectureService.class);
+    private final CalculationHistoryWriter calculationHistoryWriter = mock(CalculationHistoryWriter.class);
+
+    private final LivingCostService service = new LivingCostService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "postalCodeService", postalCodeService);
+        ReflectionTestUtils.setField(service, "prefectureService", prefectureService);
+        ReflectionTestUtils.setField(service, "calculationHistoryWriter", calculationHistoryWriter);
+        ReflectionTestUtils.setField(service, "maxSweepPoints", 1000);
+    }
+
+    @Test
+    void 都道府県が決まらない郵便番号は郵便番号が見つからないとして扱う() {
+        when(postalCodeService.getPrefectureName("12-3456")).thenReturn(null);
+
+        assertThrows(PostalCodeNotFoundException.class,
+            () -> service.calculate("12-3456", 5000000, new User()));
+        assertThrows(PostalCodeNotFoundException.class,
+            () -> service.sweep("12-3456", 3000000, 5000000, 1000000));
+
+        // 平均家賃は引かず、履歴も保存しない
+        verify(prefectureService, never()).current();
+        verify(calculationHistoryWriter, never()).submit(any());
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.authapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.example.authapp.entity.PostalCodeCacheEntry;
+import com.example.authapp.repository.PostalCodeCacheRepository;
+
+/**
+ * 郵便番号の永続キャッシュを起動時に読み込んだ順序を確認する
+ */
+class PostalCodeCacheStoreTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private PostalCodeCacheRepository repository;
+    private PostalCodeCacheStore store;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+            "jdbc:h2:mem:postal_code_cache_store_test;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE postal_code_cache (postal_code VARCHAR(7) PRIMARY KEY,"
+            + " prefecture_name VARCHAR(255) NOT NULL, resolved_at TIMESTAMP NOT NULL)");
+        repository = new PostalCodeCacheRepository(jdbcTemplate);
+
+        // 4980001が最も古く、4980005が最も新しい
+        LocalDateTime now = LocalDateTime.now();
+        List<PostalCodeCacheEntry> entries = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            entries.add(new PostalCodeCacheEntry("498000" + i, "愛知県", now.minusMinutes(10 - i)));
+        }
+        repository.saveAll(entries);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (store != null) {
+            store.stop();
+        }
+        jdbcTemplate.execute("DROP TABLE postal_code_cache");
+    }
+
+    @Test
+    void 新しいものから最大件数分を古いものから順に読み込む() {
+        List<String> loaded = new ArrayList<>();
+        repository.findRecent(3, entry -> loaded.add(entry.getPostalCode()));
+        assertEquals(Arrays.asList("4980003", "4980004", "4980005"), loaded);
+    }
+
+    @Test
+    void 読み込んだ後に追い出されるのは最も古い結果() {
+        PostalCodeCache cache = new PostalCodeCache(3, 86400, 2592000, 300);
+        store = new PostalCodeCacheStore(repository, cache, 100, 10, 60000);
+        store.start();
+
+        cache.putFound("4980006", "愛知県");
+
+        assertNull(cache.get("4980003"));
+        assertNotNull(cache.get("4980004"));
+        assertNotNull(cache.get("4980005"));
+        assertNotNull(cache.get("4980006"));
+    }
+}
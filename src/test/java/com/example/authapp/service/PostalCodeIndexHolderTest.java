@@ -0,0 +1,76 @@
+package com.example.authapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+
+import com.example.authapp.exception.InvalidParameterException;
+
+/**
+ * 郵便番号索引の差し替えで、索引ディレクトリの外のファイルを読み込まないことを確認する
+ */
+class PostalCodeIndexHolderTest {
+
+    private static final String CSV =
+        "01101,\"060  \",\"0600000\",\"ﾎｯｶｲﾄﾞｳ\",\"ｻｯﾎﾟﾛｼﾁｭｳｵｳｸ\",\"ｲｶﾆｹｲｻｲｶﾞﾅｲﾊﾞｱｲ\",\"北海道\",\"札幌市中央区\",\"\",0,0,0,0,0,0\n"
+        + "23101,\"464  \",\"4980001\",\"ｱｲﾁｹﾝ\",\"\",\"\",\"愛知県\",\"\",\"\",0,0,0,0,0,0\n";
+
+    @TempDir
+    Path tempDir;
+
+    private Path indexDirectory;
+    private PostalCodeIndexHolder holder;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        indexDirectory = Files.createDirectory(tempDir.resolve("index"));
+        writeIndex(indexDirectory.resolve("postal_codes_new.bin"));
+        writeIndex(tempDir.resolve("outside.bin"));
+        holder = new PostalCodeIndexHolder(indexDirectory.resolve("postal_codes.bin").toString(),
+            new ByteArrayResource(new byte[0]), "UTF-8");
+    }
+
+    @Test
+    void 索引ディレクトリ内のファイル名で差し替える() throws IOException {
+        assertEquals(2, holder.reload("postal_codes_new.bin").size());
+        assertEquals(23, holder.current().lookup(4980001));
+    }
+
+    @Test
+    void 索引ディレクトリの外のファイルは読み込まない() throws IOException {
+        assertThrows(InvalidParameterException.class, () -> holder.reload("../outside.bin"));
+        assertThrows(InvalidParameterException.class,
+            () -> holder.reload(tempDir.resolve("outside.bin").toAbsolutePath().toString()));
+
+        // 索引ディレクトリ内から外を指すシンボリックリンク
+        Files.createSymbolicLink(indexDirectory.resolve("link.bin"), tempDir.resolve("outside.bin"));
+        assertThrows(InvalidParameterException.class, () -> holder.reload("link.bin"));
+
+        assertEquals(0, holder.current().size());
+    }
+
+    @Test
+    void 存在しないファイルは読み込めない() {
+        assertThrows(IOException.class, () -> holder.reload("missing.bin"));
+        assertEquals(0, holder.current().size());
+    }
+
+    private static void writeIndex(Path file) throws IOException {
+        PostalCodeIndex index = PostalCodeIndex.fromCsv(
+            new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+        try (OutputStream outputStream = Files.newOutputStream(file)) {
+            index.writeTo(outputStream);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.authapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.RestTemplate;
+
+import com.example.authapp.config.ZipCloudClientConfig;
+import com.example.authapp.dto.PostalCodeResolution;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * zipcloud APIの応答が止まった場合に、同時呼び出し数がバルクヘッドの上限で抑えられることを確認する
+ *
+ * 応答を止められるスタブサーバーに、ZipCloudClientConfigと同じ接続プール付きのRestTemplateで接続する。
+ */
+class PostalCodeServiceBulkheadTest {
+
+    // バルクヘッドと接続プールの上限
+    private static final int MAX_CONCURRENT_CALLS = 4;
+
+    // 一括解決の並列数（バルクヘッドより多くする）
+    private static final int BULK_PARALLELISM = 8;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private CloseableHttpClient httpClient;
+    private PostalCodeService service;
+
+    // スタブサーバーが応答を返すまで待たせる
+    private volatile CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+    // 受け付けた接続の送信元ポート（接続の再利用を確認する）
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.createContext("/api/search", this::respond);
+        server.start();
+
+        ZipCloudClientConfig config = new ZipCloudClientConfig();
+        httpClient = config.zipCloudHttpClient(
+            MAX_CONCURRENT_CALLS, MAX_CONCURRENT_CALLS, 30000, MAX_CONCURRENT_CALLS);
+        RestTemplate restTemplate = config.zipCloudRestTemplate(new RestTemplateBuilder(), httpClient, 1000, 5000, 500);
+
+        PostalCodeIndexHolder indexHolder = mock(PostalCodeIndexHolder.class);
+        when(indexHolder.current()).thenReturn(PostalCodeIndex.EMPTY);
+        CircuitBreaker circuitBreaker = new CircuitBreaker("zipcloud", 50, 10, 50, 80, 10000, 30000, 3);
+        String apiUrl = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+            + "/api/search";
+        service = new PostalCodeService(restTemplate, indexHolder, new PostalCodeCache(10000, 86400, 2592000, 300),
+            mock(PostalCodeCacheStore.class), circuitBreaker, MAX_CONCURRENT_CALLS, 0, 1, 10,
+            BULK_PARALLELISM, apiUrl);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        release.countDown();
+        service.shutdown();
+        httpClient.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void 応答が止まっている間は上限を超える呼び出しを待たずにフォールバックする() throws Exception {
+        // 上3桁では都道府県が決まらない郵便番号（愛知県・三重県）
+        List<String> postalCodes = postalCodes(4980001, BULK_PARALLELISM);
+        CompletableFuture<List<PostalCodeResolution>> future =
+            CompletableFuture.supplyAsync(() -> service.getPrefectureNames(postalCodes));
+
+        waitUntil(() -> inFlight.get() == MAX_CONCURRENT_CALLS);
+        // 上限を超えた呼び出しがスタブサーバーに届かないことを確認する
+        Thread.sleep(200);
+        assertEquals(MAX_CONCURRENT_CALLS, inFlight.get());
+        assertEquals(MAX_CONCURRENT_CALLS, peakInFlight.get());
+        assertTrue(!future.isDone(), "応答を待っている呼び出しがあるため完了しない");
+
+        release.countDown();
+        List<PostalCodeResolution> results = future.get(5, TimeUnit.SECONDS);
+
+        int api = 0;
+        int rejected = 0;
+        for (PostalCodeResolution result : results) {
+            if (PostalCodeResolution.SOURCE_API.equals(result.getSource())) {
+                api++;
+                assertEquals("愛知県", result.getPrefecture());
+            } else {
+                rejected++;
+                assertEquals(PostalCodeResolution.SOURCE_FALLBACK, result.getSource());
+                assertTrue(result.getError().contains("上限に達しています"), result.getError());
+                // フォールバックでは上3桁から最も可能性の高い都道府県を返す
+                assertEquals("愛知県", result.getPrefecture());
+            }
+        }
+        assertEquals(MAX_CONCURRENT_CALLS, api);
+        assertEquals(BULK_PARALLELISM - MAX_CONCURRENT_CALLS, rejected);
+        assertEquals(MAX_CONCURRENT_CALLS, requests.get());
+    }
+
+    @Test
+    void 接続はプールの上限までしか作らず再利用する() throws Exception {
+        release.countDown();
+        for (int round = 0; round < 5; round++) {
+            List<String> postalCodes = postalCodes(4980001 + round * MAX_CONCURRENT_CALLS, MAX_CONCURRENT_CALLS);
+            for (PostalCodeResolution result : service.getPrefectureNames(postalCodes)) {
+                assertEquals(PostalCodeResolution.SOURCE_API, result.getSource(), result.getError());
+            }
+        }
+        assertEquals(5 * MAX_CONCURRENT_CALLS, requests.get());
+        assertTrue(clientPorts.size() <= MAX_CONCURRENT_CALLS, "接続数: " + clientPorts.size());
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        int current = inFlight.incrementAndGet();
+        peakInFlight.accumulateAndGet(current, Math::max);
+        try {
+            release.await(10, TimeUnit.SECONDS);
+            byte[] body = ("{\"status\":200,\"message\":null,\"results\":[{\"address1\":\"愛知県\","
+                + "\"prefcode\":\"23\",\"zipcode\":\"" + exchange.getRequestURI().getQuery().substring(8) + "\"}]}")
+                .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.close();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static List<String> postalCodes(int first, int count) {
+        List<String> postalCodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            postalCodes.add(String.valueOf(first + i));
+        }
+        return postalCodes;
+    }
+
+    private static void waitUntil(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("時間内に条件を満たしませんでした");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
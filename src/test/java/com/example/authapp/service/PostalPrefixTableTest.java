@@ -0,0 +1,43 @@
+package com.example.authapp.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * 郵便番号の上3桁から引く都道府県コードを、都道府県の境目の上3桁で確認する
+ */
+class PostalPrefixTableTest {
+
+    @Test
+    void 上3桁で都道府県が決まる() {
+        assertEquals(31, PostalPrefixTable.prefectureCodeOf(6830001));  // 鳥取県米子市
+        assertEquals(32, PostalPrefixTable.prefectureCodeOf(6850013));  // 島根県隠岐の島町
+        assertEquals(31, PostalPrefixTable.prefectureCodeOf(6890201));  // 鳥取県鳥取市
+        assertEquals(32, PostalPrefixTable.prefectureCodeOf(6900001));  // 島根県松江市
+        assertEquals(42, PostalPrefixTable.prefectureCodeOf(8170001));  // 長崎県対馬市
+        assertEquals(40, PostalPrefixTable.prefectureCodeOf(8100001));  // 福岡県福岡市
+        assertEquals(13, PostalPrefixTable.prefectureCodeOf(1000001));  // 東京都千代田区
+        assertEquals(47, PostalPrefixTable.prefectureCodeOf(9071801));  // 沖縄県与那国町
+    }
+
+    @Test
+    void 複数の都道府県にまたがる上3桁は決めずに最も可能性の高い都道府県を返す() {
+        // 684-00xxは鳥取県境港市、684-01xx・03xx・04xxは島根県隠岐郡
+        assertEquals(0, PostalPrefixTable.prefectureCodeOf(6840004));
+        assertEquals(0, PostalPrefixTable.prefectureCodeOf(6840403));
+        assertEquals(31, PostalPrefixTable.likelyPrefectureCodeOf(6840403));
+
+        assertEquals(0, PostalPrefixTable.prefectureCodeOf(4980001));
+        assertEquals(23, PostalPrefixTable.likelyPrefectureCodeOf(4980001));
+        assertEquals(0, PostalPrefixTable.prefectureCodeOf(6180001));
+        assertEquals(0, PostalPrefixTable.prefectureCodeOf(8115101));
+        assertEquals(0, PostalPrefixTable.prefectureCodeOf(8710801));
+    }
+
+    @Test
+    void 割り当てのない上3桁は不明() {
+        assertEquals(0, PostalPrefixTable.prefectureCodeOf(80001));
+        assertEquals(0, PostalPrefixTable.likelyPrefectureCodeOf(80001));
+    }
+}